@@ -8,3 +8,7 @@
 #-keepclassmembers class fqcn.of.javascript.interface.for.Webview {
 #   public *;
 #}
+
+# Traces de plantage lisibles malgré l'obfuscation (mapping.txt du build release)
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
@@ -0,0 +1,138 @@
+package com.example.vicvoix;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache disque LRU des clips synthétisés, adressé par contenu
+ * (clé = {@link SynthesisRequest#cacheKey()}).
+ * L'ordre LRU survit aux redémarrages grâce au lastModified des fichiers.
+ * Les segments du dernier document sont épinglés : jamais évincés avant la synthèse suivante.
+ * Le répertoire n'est parcouru qu'au premier accès (ou {@link #warmUp}), pas à la construction.
+ */
+public final class AudioCache {
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final File dir;
+    private final long maxBytes;
+    // accessOrder = true : l'itération commence par l'entrée la moins récemment utilisée
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    private Set<String> pinned = Collections.emptySet();
+    private boolean loaded;
+
+    public AudioCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Lit l'index maintenant, hors du thread qui fera le premier accès. */
+    public synchronized void warmUp() {
+        ensureLoaded();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        if (!dir.exists() && !dir.mkdirs()) return;
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            if (f.getName().endsWith(TMP_SUFFIX)) {
+                // Écriture interrompue lors d'une session précédente
+                f.delete();
+                continue;
+            }
+            entries.put(f.getName(), f.length());
+            totalBytes += f.length();
+        }
+        trimToSize();
+    }
+
+    /** Retourne le fichier en cache, ou null si absent. */
+    public synchronized File get(String key) {
+        ensureLoaded();
+        if (entries.get(key) == null) return null;
+        File f = new File(dir, key);
+        if (!f.isFile()) {
+            remove(key);
+            return null;
+        }
+        f.setLastModified(System.currentTimeMillis());
+        return f;
+    }
+
+    /** Présence sans toucher l'ordre LRU. */
+    public synchronized boolean contains(String key) {
+        ensureLoaded();
+        return entries.containsKey(key);
+    }
+
+    /** Vrai si tous les fichiers viennent de ce cache (et non du moteur TTS de l'appareil). */
+    public boolean ownsAll(Collection<File> files) {
+        for (File f : files) {
+            if (!dir.equals(f.getParentFile())) return false;
+        }
+        return true;
+    }
+
+    /** Remplace les clés épinglées (segments du document courant). */
+    public synchronized void pin(Collection<String> keys) {
+        pinned = new HashSet<>(keys);
+    }
+
+    /** Fichier temporaire unique (plusieurs écritures concurrentes d'une même clé possibles). */
+    public File newTempFile(String key) throws IOException {
+        if (!dir.exists()) dir.mkdirs();
+        return File.createTempFile(key + ".", TMP_SUFFIX, dir);
+    }
+
+    /** Publie un fichier temporaire complet sous la clé donnée (rename atomique). */
+    public synchronized File commit(String key, File tmp) throws IOException {
+        ensureLoaded();
+        File target = new File(dir, key);
+        remove(key);
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("Impossible d'écrire " + target);
+        }
+        entries.put(key, target.length());
+        totalBytes += target.length();
+        trimToSize();
+        return target;
+    }
+
+    public synchronized long sizeBytes() {
+        ensureLoaded();
+        return totalBytes;
+    }
+
+    private void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+            new File(dir, key).delete();
+        }
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        // On garde toujours au moins l'entrée la plus récente, même si elle dépasse le budget
+        while (totalBytes > maxBytes && entries.size() > 1 && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (pinned.contains(eldest.getKey())) continue;
+            new File(dir, eldest.getKey()).delete();
+            totalBytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+}
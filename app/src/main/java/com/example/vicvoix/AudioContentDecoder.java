@@ -0,0 +1,226 @@
+package com.example.vicvoix;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Extrait le champ "audioContent" d'une réponse text:synthesize et le décode
+ * (Base64) directement vers un flux de sortie.
+ * La réponse n'est jamais matérialisée : mémoire constante quelle que soit la taille du clip.
+ * (JsonReader de Gson retourne les valeurs en String entière, d'où ce petit lecteur dédié.)
+ * Le JSON est lu octet par octet, sans décodeur de caractères : en UTF-8, les octets d'un
+ * caractère non ASCII ne ressemblent jamais à '"', '\' ou aux délimiteurs, et les clés comme
+ * le Base64 sont en ASCII. Les deux tampons viennent de {@link BufferPool}.
+ */
+public final class AudioContentDecoder {
+    static final String FIELD = "audioContent";
+
+    private static final int[] BASE64 = new int[128];
+    static {
+        for (int i = 0; i < BASE64.length; i++) BASE64[i] = -1;
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) BASE64[alphabet.charAt(i)] = i;
+        // Variante URL-safe acceptée aussi
+        BASE64['-'] = 62;
+        BASE64['_'] = 63;
+    }
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final byte[] input;
+    private final byte[] bytes;
+    private int pos;
+    private int limit;
+    private int pushback = -1;
+    private int byteCount;
+    private long written;
+
+    private AudioContentDecoder(InputStream in, OutputStream out, byte[] input, byte[] bytes) {
+        this.in = in;
+        this.out = out;
+        this.input = input;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param in corps de la réponse, en UTF-8
+     * @return nombre d'octets audio écrits dans {@code out}
+     */
+    public static long decode(InputStream in, OutputStream out) throws IOException {
+        BufferPool pool = BufferPool.shared();
+        byte[] input = pool.acquire();
+        byte[] bytes = pool.acquire();
+        try {
+            return new AudioContentDecoder(in, out, input, bytes).run();
+        } finally {
+            pool.release(bytes);
+            pool.release(input);
+        }
+    }
+
+    private long run() throws IOException {
+        expect('{');
+        while (true) {
+            int c = nextNonWhitespace();
+            if (c == '}' || c == -1) break;
+            if (c == ',') continue;
+            if (c != '"') throw syntaxError("clé attendue");
+            String key = readKey();
+            expect(':');
+            if (FIELD.equals(key)) {
+                expect('"');
+                decodeBase64String();
+                flushBytes();
+                return written;
+            }
+            skipValue();
+        }
+        throw new IOException("Champ " + FIELD + " absent de la réponse");
+    }
+
+    // --- Lecture octet par octet, sur un tampon fixe ---
+
+    private int read() throws IOException {
+        if (pushback >= 0) {
+            int c = pushback;
+            pushback = -1;
+            return c;
+        }
+        if (pos == limit) {
+            limit = in.read(input, 0, input.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return input[pos++] & 0xFF;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (nextNonWhitespace() != expected) throw syntaxError("'" + expected + "' attendu");
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("JSON invalide: " + message);
+    }
+
+    private String readKey() throws IOException {
+        StringBuilder sb = new StringBuilder(16);
+        while (true) {
+            int c = read();
+            if (c == -1) throw syntaxError("chaîne non terminée");
+            if (c == '"') return sb.toString();
+            sb.append(c == '\\' ? (char) readEscape() : (char) c);
+        }
+    }
+
+    /** Lit la suite d'un échappement JSON (le '\' est déjà consommé). */
+    private int readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) throw syntaxError("échappement \\u invalide");
+                    value = (value << 4) | digit;
+                }
+                return value;
+            case -1: throw syntaxError("échappement tronqué");
+            default: return c; // \" \\ \/
+        }
+    }
+
+    private void skipValue() throws IOException {
+        int c = nextNonWhitespace();
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            int depth = 1;
+            while (depth > 0) {
+                c = read();
+                if (c == -1) throw syntaxError("valeur non terminée");
+                if (c == '"') skipString();
+                else if (c == '{' || c == '[') depth++;
+                else if (c == '}' || c == ']') depth--;
+            }
+        } else {
+            // nombre, true, false, null
+            while (c != -1 && c != ',' && c != '}' && c != ']' && c > ' ') c = read();
+            pushback = c;
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) throw syntaxError("chaîne non terminée");
+            if (c == '"') return;
+            if (c == '\\') readEscape();
+        }
+    }
+
+    // --- Décodage Base64 en flux ---
+
+    private void decodeBase64String() throws IOException {
+        int quantum = 0;
+        int count = 0;
+        boolean padding = false;
+        while (true) {
+            int c = read();
+            if (c == -1) throw syntaxError("audioContent tronqué");
+            if (c == '"') break;
+            if (c == '\\') c = readEscape();
+            if (c == '=') {
+                padding = true;
+                continue;
+            }
+            if (c == '\n' || c == '\r' || c == ' ' || c == '\t') continue;
+            int v = c < 128 ? BASE64[c] : -1;
+            if (v < 0 || padding) throw new IOException("Base64 invalide");
+            quantum = (quantum << 6) | v;
+            if (++count == 4) {
+                putByte(quantum >> 16);
+                putByte(quantum >> 8);
+                putByte(quantum);
+                quantum = 0;
+                count = 0;
+            }
+        }
+        if (count == 1) throw new IOException("Base64 invalide");
+        if (count == 2) {
+            putByte(quantum >> 4);
+        } else if (count == 3) {
+            putByte(quantum >> 10);
+            putByte(quantum >> 2);
+        }
+    }
+
+    private void putByte(int b) throws IOException {
+        if (byteCount == bytes.length) flushBytes();
+        bytes[byteCount++] = (byte) b;
+    }
+
+    private void flushBytes() throws IOException {
+        if (byteCount > 0) {
+            out.write(bytes, 0, byteCount);
+            written += byteCount;
+            byteCount = 0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.vicvoix;
+
+/**
+ * Lecteur du document synthétisé, tel que le pilotent {@link TtsService} et la barre de progression.
+ * Toutes les méthodes s'appellent sur le thread principal ; positions et durées en ms.
+ */
+public interface AudioPlayback {
+
+    /** Appelé sur le thread principal. */
+    interface Listener {
+        void onStarted();
+        void onCompleted();
+        void onError(String message);
+    }
+
+    boolean isPlaying();
+
+    /** Lecture en attente de données (segment pas encore reçu). */
+    boolean isBuffering();
+
+    void pause();
+
+    /** Reprend, ou rejoue depuis le début si la lecture était terminée. */
+    void resume();
+
+    void seekTo(int positionMs);
+
+    /** Durée connue à ce stade : elle grandit à mesure que les segments arrivent. */
+    int getDuration();
+
+    int getCurrentPosition();
+
+    void release();
+}
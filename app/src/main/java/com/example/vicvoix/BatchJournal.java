@@ -0,0 +1,286 @@
+package com.example.vicvoix;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Journal d'un lot en cours, pour le reprendre après un arrêt du processus.
+ * {@code job.json} décrit le lot (écrit une fois, rename atomique) ; {@code progress.log}
+ * reçoit une ligne par étape, ajoutée puis synchronisée sur le disque (fsync) :
+ * destination ouverte, clip terminé, clip en échec. Une dernière ligne tronquée par un arrêt
+ * brutal est ignorée à la relecture. Les segments déjà synthétisés d'un clip inachevé
+ * sont dans l'{@link AudioCache} : la reprise ne les redemande pas à l'API.
+ */
+public final class BatchJournal {
+    private static final String JOB = "job.json";
+    private static final String LOG = "progress.log";
+
+    public final String destination; // ex. arborescence SAF choisie
+    public final String defaultVoice;
+    public final int parallelism;
+    public final List<BatchScript.Item> items;
+
+    private final File dir;
+    private final Set<Integer> done = new HashSet<>();
+    private final Set<Integer> failed = new HashSet<>();
+    private final Map<Integer, String> targets = new HashMap<>();
+    private String lastError;
+    private boolean closed;
+
+    private BatchJournal(File dir, String destination, String defaultVoice, int parallelism,
+                         List<BatchScript.Item> items) {
+        this.dir = dir;
+        this.destination = destination;
+        this.defaultVoice = defaultVoice;
+        this.parallelism = parallelism;
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+    }
+
+    /** Nouveau journal dans {@code dir} ; remplace celui d'un lot précédent. */
+    public static BatchJournal create(File dir, List<BatchScript.Item> items, String defaultVoice,
+                                      int parallelism, String destination) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Impossible de créer " + dir);
+        new File(dir, LOG).delete();
+        BatchJournal journal = new BatchJournal(dir, destination, defaultVoice, parallelism, items);
+        File tmp = new File(dir, JOB + ".tmp");
+        try (FileOutputStream os = new FileOutputStream(tmp)) {
+            Writer out = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+            journal.writeJob(out);
+            out.flush();
+            os.getFD().sync();
+        }
+        if (!tmp.renameTo(new File(dir, JOB))) {
+            tmp.delete();
+            throw new IOException("Impossible d'écrire " + JOB);
+        }
+        return journal;
+    }
+
+    /** Lot interrompu laissé dans {@code dir}, ou null (aucun, terminé ou illisible). */
+    public static BatchJournal load(File dir) {
+        File job = new File(dir, JOB);
+        if (!job.isFile()) return null;
+        BatchJournal journal;
+        try (Reader in = new InputStreamReader(new FileInputStream(job), StandardCharsets.UTF_8)) {
+            journal = readJob(dir, in);
+        } catch (IOException | RuntimeException e) {
+            clear(dir);
+            return null;
+        }
+        File log = new File(dir, LOG);
+        if (log.isFile()) {
+            try {
+                for (String line : readLog(log)) journal.replay(line);
+            } catch (IOException e) {
+                // Journal de progression illisible : tout le lot est refait, depuis le cache
+            }
+        }
+        if (journal.remaining().isEmpty()) {
+            journal.delete();
+            return null;
+        }
+        return journal;
+    }
+
+    // --- Avancement ---
+
+    /** Clips ni terminés ni en échec, dans l'ordre du lot. */
+    public synchronized List<BatchScript.Item> remaining() {
+        List<BatchScript.Item> left = new ArrayList<>();
+        for (BatchScript.Item item : items) {
+            if (!done.contains(item.index) && !failed.contains(item.index)) left.add(item);
+        }
+        return left;
+    }
+
+    public synchronized int doneCount() {
+        return done.size();
+    }
+
+    public synchronized int failedCount() {
+        return failed.size();
+    }
+
+    public synchronized String lastError() {
+        return lastError;
+    }
+
+    /** Destination ouverte pour ce clip avant une interruption (écriture peut-être incomplète), ou null. */
+    public synchronized String target(int index) {
+        return targets.get(index);
+    }
+
+    /** Note la destination d'un clip avant d'y écrire. */
+    public synchronized void opened(int index, String target) throws IOException {
+        targets.put(index, target);
+        append("o " + index + " " + target);
+    }
+
+    /** Point de reprise : clip écrit en entier ({@code error} null) ou abandonné. */
+    public synchronized void finished(int index, String error) throws IOException {
+        if (error == null) {
+            done.add(index);
+            append("d " + index);
+        } else {
+            failed.add(index);
+            lastError = error;
+            append("f " + index + " " + error.replace('\n', ' '));
+        }
+    }
+
+    /** Plus aucune écriture : le lot a été remplacé ou interrompu. Le journal reste sur le disque. */
+    public synchronized void close() {
+        closed = true;
+    }
+
+    /** Lot terminé : rien à reprendre. */
+    public synchronized void delete() {
+        closed = true;
+        clear(dir);
+    }
+
+    private void append(String line) throws IOException {
+        if (closed) return;
+        try (FileOutputStream out = new FileOutputStream(new File(dir, LOG), true)) {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+    }
+
+    /** Lignes complètes du journal ; une fin tronquée par l'arrêt est retirée du fichier. */
+    private static List<String> readLog(File log) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            byte[] bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+            int end = bytes.length;
+            while (end > 0 && bytes[end - 1] != '\n') end--;
+            // Sans cela, la prochaine ligne ajoutée se collerait au morceau tronqué
+            if (end < bytes.length) file.setLength(end);
+            List<String> lines = new ArrayList<>();
+            for (String line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isEmpty()) lines.add(line);
+            }
+            return lines;
+        }
+    }
+
+    private void replay(String line) {
+        String[] parts = line.split(" ", 3);
+        if (parts.length < 2) return;
+        int index;
+        try {
+            index = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        switch (parts[0]) {
+            case "o":
+                if (parts.length == 3) targets.put(index, parts[2]);
+                break;
+            case "d":
+                done.add(index);
+                break;
+            case "f":
+                failed.add(index);
+                lastError = parts.length == 3 ? parts[2] : null;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void clear(File dir) {
+        new File(dir, LOG).delete();
+        new File(dir, JOB).delete();
+    }
+
+    // --- job.json ---
+
+    private void writeJob(Writer out) throws IOException {
+        JsonWriter w = new JsonWriter(out);
+        w.beginObject();
+        w.name("destination").value(destination);
+        w.name("defaultVoice").value(defaultVoice);
+        w.name("parallelism").value(parallelism);
+        w.name("items").beginArray();
+        for (BatchScript.Item item : items) {
+            w.beginObject();
+            w.name("index").value(item.index);
+            w.name("text").value(item.text);
+            if (item.voice != null) w.name("voice").value(item.voice);
+            w.endObject();
+        }
+        w.endArray();
+        w.endObject();
+        w.flush();
+    }
+
+    private static BatchJournal readJob(File dir, Reader in) throws IOException {
+        JsonReader r = new JsonReader(in);
+        String destination = null;
+        String defaultVoice = null;
+        int parallelism = 1;
+        List<BatchScript.Item> items = new ArrayList<>();
+        r.beginObject();
+        while (r.hasNext()) {
+            String field = r.nextName();
+            if ("destination".equals(field)) {
+                destination = r.nextString();
+            } else if ("defaultVoice".equals(field) && r.peek() == JsonToken.STRING) {
+                defaultVoice = r.nextString();
+            } else if ("parallelism".equals(field)) {
+                parallelism = r.nextInt();
+            } else if ("items".equals(field)) {
+                r.beginArray();
+                while (r.hasNext()) items.add(readItem(r));
+                r.endArray();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+        if (destination == null) throw new IOException("Lot sans destination");
+        return new BatchJournal(dir, destination, defaultVoice, parallelism, items);
+    }
+
+    private static BatchScript.Item readItem(JsonReader r) throws IOException {
+        int index = -1;
+        String text = null;
+        String voice = null;
+        r.beginObject();
+        while (r.hasNext()) {
+            String field = r.nextName();
+            if ("index".equals(field)) {
+                index = r.nextInt();
+            } else if ("text".equals(field)) {
+                text = r.nextString();
+            } else if ("voice".equals(field)) {
+                voice = r.nextString();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+        if (index < 0 || text == null) throw new IOException("Ligne de lot invalide");
+        return new BatchScript.Item(index, text, voice);
+    }
+}
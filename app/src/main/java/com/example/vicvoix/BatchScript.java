@@ -0,0 +1,93 @@
+package com.example.vicvoix;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Liste d'énoncés pour une synthèse par lot : une ligne = un clip.
+ * Colonne voix optionnelle en fin de ligne, séparée par ';', ',' ou tabulation
+ * (ex. {@code "Bonjour à tous";fr-FR-Wavenet-B}). Lignes vides et "# ..." ignorées.
+ */
+public final class BatchScript {
+    private static final Pattern VOICE_NAME = Pattern.compile("[a-z]{2,3}-[A-Z]{2}-[A-Za-z0-9-]+");
+
+    public static final class Item {
+        public final int index;
+        public final String text;
+        public final String voice; // null : voix par défaut du lot
+
+        Item(int index, String text, String voice) {
+            this.index = index;
+            this.text = text;
+            this.voice = voice;
+        }
+    }
+
+    private BatchScript() {}
+
+    public static List<Item> parse(Reader in) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(in);
+        String line;
+        while ((line = reader.readLine()) != null) lines.add(line);
+        return parseLines(lines);
+    }
+
+    public static List<Item> parseLines(List<String> lines) {
+        List<Item> items = new ArrayList<>();
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            Item item = line.startsWith("\"") ? parseQuoted(items.size(), line) : parsePlain(items.size(), line);
+            if (!item.text.isEmpty()) items.add(item);
+        }
+        return items;
+    }
+
+    private static Item parseQuoted(int index, String line) {
+        StringBuilder text = new StringBuilder();
+        int i = 1;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    text.append('"'); // "" = guillemet échappé (CSV)
+                    i += 2;
+                    continue;
+                }
+                break;
+            }
+            text.append(c);
+            i++;
+        }
+        String rest = i + 1 < line.length() ? line.substring(i + 1).trim() : "";
+        if (!rest.isEmpty() && isSeparator(rest.charAt(0))) rest = rest.substring(1).trim();
+        String voice = VOICE_NAME.matcher(rest).matches() ? rest : null;
+        return new Item(index, text.toString().trim(), voice);
+    }
+
+    private static Item parsePlain(int index, String line) {
+        int sep = -1;
+        for (int i = line.length() - 1; i >= 0; i--) {
+            if (isSeparator(line.charAt(i))) {
+                sep = i;
+                break;
+            }
+        }
+        if (sep > 0) {
+            String candidate = line.substring(sep + 1).trim();
+            if (VOICE_NAME.matcher(candidate).matches()) {
+                return new Item(index, line.substring(0, sep).trim(), candidate);
+            }
+        }
+        return new Item(index, line, null);
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ';' || c == ',' || c == '\t';
+    }
+}
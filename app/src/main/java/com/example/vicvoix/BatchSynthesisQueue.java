@@ -0,0 +1,217 @@
+package com.example.vicvoix;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * File de synthèse par lot : N clips traités par un pool de taille fixe, dans la file
+ * « téléchargement » du {@link RequestScheduler} (quotas, reprises sur 429 / 5xx / erreur réseau) :
+ * un gros lot ne retarde pas une lecture lancée entre-temps.
+ * Avec un {@link BatchJournal}, chaque clip terminé est un point de reprise après arrêt du processus.
+ */
+public final class BatchSynthesisQueue {
+    /** Destinations des clips (ex. documents SAF), désignées par un identifiant texte (URI). */
+    public interface Sink {
+        /** Crée la destination du clip ; elle est notée au journal avant toute écriture. */
+        String create(BatchScript.Item item) throws IOException;
+
+        OutputStream open(String target) throws IOException;
+
+        /** Supprime une destination laissée incomplète par une interruption. */
+        void discard(String target) throws IOException;
+    }
+
+    /** Appelé sur les threads du pool. */
+    public interface Listener {
+        void onProgress(Progress progress);
+        void onFinished(Progress progress);
+    }
+
+    public static final class Progress {
+        public final int done;
+        public final int failed;
+        public final int total;
+        public final int resumed; // clips déjà faits avant une reprise, compris dans done
+        public final long chars;  // depuis le (re)démarrage
+        public final long elapsedMs;
+        public final String lastError;
+
+        Progress(int done, int failed, int total, int resumed, long chars, long elapsedMs, String lastError) {
+            this.done = done;
+            this.failed = failed;
+            this.total = total;
+            this.resumed = resumed;
+            this.chars = chars;
+            this.elapsedMs = elapsedMs;
+            this.lastError = lastError;
+        }
+
+        public double clipsPerMinute() {
+            return elapsedMs == 0 ? 0 : (done - resumed) * 60_000.0 / elapsedMs;
+        }
+
+        public double charsPerSecond() {
+            return elapsedMs == 0 ? 0 : chars * 1000.0 / elapsedMs;
+        }
+    }
+
+    private final ChunkedSynthesizer synthesizer;
+    private final ExecutorService pool;
+    private final Sink sink;
+    private final Listener listener;
+    private BatchJournal journal; // null : lot non reprenable ; fixé par submit()
+    private int total;
+    private int done;
+    private int failed;
+    private int resumed;
+    private long chars;
+    private long startedAt;
+    private String lastError;
+    private boolean finished;
+    private volatile boolean cancelled;
+
+    public BatchSynthesisQueue(ChunkedSynthesizer synthesizer, int parallelism, Sink sink, Listener listener) {
+        this.synthesizer = synthesizer;
+        this.pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        this.sink = sink;
+        this.listener = listener;
+    }
+
+    /**
+     * Lance le lot ; les items sans voix utilisent {@code defaultVoice}.
+     * En reprise, {@code items} ne contient que les clips restants de {@code journal}.
+     * Sans effet sur un lot déjà annulé (le journal reste alors sur le disque).
+     */
+    public synchronized void submit(List<BatchScript.Item> items, String defaultVoice, BatchJournal journal) {
+        if (cancelled) {
+            if (journal != null) journal.close();
+            return;
+        }
+        this.journal = journal;
+        total = items.size();
+        if (journal != null) {
+            resumed = journal.doneCount();
+            done = resumed;
+            failed = journal.failedCount();
+            lastError = journal.lastError();
+            total += done + failed;
+        }
+        startedAt = System.currentTimeMillis();
+        if (items.isEmpty()) {
+            if (journal != null) journal.delete();
+            finished = true;
+            listener.onFinished(snapshot());
+            pool.shutdown();
+            return;
+        }
+        if (done + failed > 0) listener.onProgress(snapshot()); // reprise : l'avancement acquis s'affiche aussitôt
+        for (BatchScript.Item item : items) {
+            String voice = item.voice != null ? item.voice : defaultVoice;
+            pool.execute(() -> process(item, voice));
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Arrête le lot ; onFinished est appelé une fois avec l'avancement atteint.
+     * Le journal reste sur le disque : le lot reprendra au prochain démarrage, sauf s'il est remplacé.
+     */
+    public void cancel() {
+        BatchJournal j;
+        Progress progress = null;
+        synchronized (this) {
+            // Sous le verrou : submit() ne met plus rien dans le pool après ceci
+            cancelled = true;
+            j = journal;
+            if (!finished) {
+                finished = true;
+                progress = snapshot();
+            }
+        }
+        if (j != null) j.close();
+        pool.shutdownNow();
+        if (progress != null) listener.onFinished(progress);
+    }
+
+    private void process(BatchScript.Item item, String voice) {
+        if (cancelled) return;
+        try {
+            List<File> segments = new ArrayList<>();
+            for (String text : TextSegmenter.split(item.text)) {
+                segments.add(synthesizer.fetch(new SynthesisRequest(text, voice), RequestScheduler.Lane.DOWNLOAD));
+            }
+            String previous = journal != null ? journal.target(item.index) : null;
+            if (previous != null) {
+                try {
+                    sink.discard(previous); // clip à moitié écrit avant l'interruption
+                } catch (IOException e) {
+                    // Déjà supprimé, ou destination inaccessible : on réécrit à côté
+                }
+            }
+            String target = sink.create(item);
+            if (journal != null) checkpoint(() -> journal.opened(item.index, target));
+            byte[] buffer = BufferPool.shared().acquire();
+            try (OutputStream out = sink.open(target)) {
+                for (File f : segments) {
+                    try (InputStream in = new FileInputStream(f)) {
+                        int n;
+                        while ((n = in.read(buffer)) != -1) out.write(buffer, 0, n);
+                    }
+                }
+            } finally {
+                BufferPool.shared().release(buffer);
+            }
+            report(item, null);
+        } catch (IOException e) {
+            if (!cancelled) report(item, "Ligne " + (item.index + 1) + ": " + e.getMessage());
+        }
+    }
+
+    private interface Checkpoint {
+        void write() throws IOException;
+    }
+
+    private static void checkpoint(Checkpoint step) {
+        try {
+            step.write();
+        } catch (IOException e) {
+            // Journal non écrit : le lot continue, au pire ce clip sera refait à la reprise
+        }
+    }
+
+    private void report(BatchScript.Item item, String error) {
+        Progress progress;
+        boolean last;
+        if (journal != null && !cancelled) checkpoint(() -> journal.finished(item.index, error));
+        synchronized (this) {
+            if (finished) return;
+            if (error == null) {
+                done++;
+                chars += item.text.length();
+            } else {
+                failed++;
+                lastError = error;
+            }
+            progress = snapshot();
+            finished = done + failed == total;
+            last = finished;
+        }
+        if (last) {
+            if (journal != null) journal.delete(); // lot complet : plus rien à reprendre
+            listener.onFinished(progress);
+        } else {
+            listener.onProgress(progress);
+        }
+    }
+
+    private synchronized Progress snapshot() {
+        return new Progress(done, failed, total, resumed, chars, System.currentTimeMillis() - startedAt, lastError);
+    }
+}
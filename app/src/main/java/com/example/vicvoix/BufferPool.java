@@ -0,0 +1,74 @@
+package com.example.vicvoix;
+
+import java.util.ArrayDeque;
+
+/**
+ * Réserve bornée de tampons de {@link #BUFFER_SIZE} octets, partagée par la réception
+ * de la réponse, le décodage Base64, l'écriture des fichiers et les copies vers le lecteur.
+ * Une génération ne fait donc plus d'allocation de tampon une fois la réserve amorcée :
+ * la mémoire reste plate d'un document à l'autre.
+ * Au-delà de {@code maxPooled} tampons rendus, les suivants sont laissés au GC ;
+ * {@link #trim} vide la réserve quand le système manque de mémoire.
+ */
+public final class BufferPool {
+    public static final int BUFFER_SIZE = 8192;
+    // Appels en vol au plus (RequestScheduler), chacun avec son tampon d'entrée et de sortie
+    static final int DEFAULT_MAX_POOLED = 24;
+
+    private static final BufferPool SHARED = new BufferPool(DEFAULT_MAX_POOLED);
+
+    private final int maxPooled;
+    private final ArrayDeque<byte[]> free = new ArrayDeque<>();
+    private long allocated;
+    private long reused;
+
+    public BufferPool(int maxPooled) {
+        this.maxPooled = maxPooled;
+    }
+
+    /** Réserve commune à tout le processus. */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /** Tampon de {@link #BUFFER_SIZE} octets, au contenu quelconque ; à rendre par {@link #release}. */
+    public byte[] acquire() {
+        synchronized (this) {
+            byte[] buffer = free.pollFirst();
+            if (buffer != null) {
+                reused++;
+                return buffer;
+            }
+            allocated++;
+        }
+        return new byte[BUFFER_SIZE];
+    }
+
+    /** Rend un tampon : il ne doit plus être utilisé par l'appelant. Sans effet sur null. */
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length != BUFFER_SIZE) return;
+        synchronized (this) {
+            // Dernier rendu, premier resservi : les tampons chauds restent en cache processeur
+            if (free.size() < maxPooled) free.addFirst(buffer);
+        }
+    }
+
+    /** Ne garde que {@code keep} tampons libres au plus ; les autres repartent au GC. */
+    public synchronized void trim(int keep) {
+        while (free.size() > Math.max(0, keep)) free.pollLast();
+    }
+
+    public synchronized int pooled() {
+        return free.size();
+    }
+
+    /** Tampons créés depuis le démarrage (réserve vide au moment de la demande). */
+    public synchronized long allocated() {
+        return allocated;
+    }
+
+    /** Demandes servies par un tampon déjà existant. */
+    public synchronized long reused() {
+        return reused;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.vicvoix;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.core.content.FileProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture enchaînée de segments audio arrivant au fil de l'eau.
+ * Chaque segment a son MediaPlayer ; le suivant est branché via
+ * {@link MediaPlayer#setNextMediaPlayer} dès qu'il est prêt, pour un passage sans blanc.
+ * Toutes les méthodes s'appellent sur le thread principal.
+ */
+public final class ChunkPlayer implements AudioPlayback {
+    private static final String TAG = "VicVoixTTS";
+
+    private final Context context;
+    private final Listener listener;
+    private final TtsMetrics metrics;
+    private final String voice; // pour les métriques, peut être null
+    private final List<MediaPlayer> players = new ArrayList<>();
+    private final List<Boolean> prepared = new ArrayList<>();
+    private final List<Integer> durations = new ArrayList<>(); // -1 tant que jamais préparé
+    private final List<Long> prepareStarts = new ArrayList<>(); // System.nanoTime() du prepareAsync
+    private int current;
+    private boolean allChunksAdded;
+    private boolean started;
+    private boolean paused;
+    private boolean waitingForNext; // segment courant terminé, le suivant pas encore prêt
+    private boolean completed;
+
+    public ChunkPlayer(Context context, Listener listener, TtsMetrics metrics, String voice) {
+        this.context = context;
+        this.listener = listener;
+        this.metrics = metrics;
+        this.voice = voice;
+    }
+
+    /** Ajoute le segment suivant (dans l'ordre du texte). */
+    public void addChunk(File audioFile) {
+        final int index = players.size();
+        MediaPlayer mp = new MediaPlayer();
+        players.add(mp);
+        prepared.add(false);
+        durations.add(-1);
+        prepareStarts.add(System.nanoTime());
+        try {
+            Uri uri = FileProvider.getUriForFile(context, context.getPackageName() + ".fileprovider", audioFile);
+            mp.setDataSource(context, uri);
+        } catch (IOException e) {
+            Log.e(TAG, "ChunkPlayer.addChunk", e);
+            listener.onError("Erreur lecture: " + e.getMessage());
+            return;
+        }
+        mp.setOnPreparedListener(p -> onPrepared(index, p));
+        mp.setOnCompletionListener(p -> onChunkCompleted(index));
+        mp.prepareAsync();
+    }
+
+    /** Plus aucun segment ne sera ajouté. */
+    public void finish() {
+        allChunksAdded = true;
+        if (waitingForNext && current == players.size() - 1) {
+            onChunkCompleted(current);
+        }
+    }
+
+    private void onPrepared(int index, MediaPlayer mp) {
+        prepared.set(index, true);
+        durations.set(index, mp.getDuration());
+        metrics.record(TtsMetrics.PREPARE, voice, System.nanoTime() - prepareStarts.get(index));
+        if (!started) {
+            if (index == 0) {
+                started = true;
+                if (!paused) mp.start();
+                listener.onStarted();
+            }
+        } else if (waitingForNext && index == current + 1) {
+            // Le segment précédent a fini avant que celui-ci soit prêt
+            waitingForNext = false;
+            current = index;
+            if (!paused) mp.start();
+        }
+        // Chaînage avec les voisins déjà prêts
+        if (index > 0 && index - 1 >= current && prepared.get(index - 1)) {
+            players.get(index - 1).setNextMediaPlayer(mp);
+        }
+        if (index + 1 < players.size() && prepared.get(index + 1)) {
+            mp.setNextMediaPlayer(players.get(index + 1));
+        }
+    }
+
+    private void onChunkCompleted(int index) {
+        if (index != current) return;
+        int next = index + 1;
+        if (next < players.size() && prepared.get(next)) {
+            // setNextMediaPlayer a déjà démarré le suivant
+            current = next;
+        } else if (allChunksAdded && next >= players.size()) {
+            completed = true;
+            listener.onCompleted();
+        } else {
+            waitingForNext = true;
+        }
+    }
+
+    // Un MediaPlayer terminé ne peut plus servir de "next" : on re-prépare ceux déjà joués
+    private void rearm(int from, int to) {
+        for (int i = from; i <= to && i < players.size(); i++) {
+            MediaPlayer mp = players.get(i);
+            prepared.set(i, false);
+            try {
+                mp.stop();
+                prepareStarts.set(i, System.nanoTime());
+                mp.prepareAsync();
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "ChunkPlayer.rearm", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isPlaying() {
+        MediaPlayer mp = currentPlayer();
+        return mp != null && prepared.get(current) && !waitingForNext && mp.isPlaying();
+    }
+
+    @Override
+    public boolean isBuffering() {
+        return waitingForNext && !paused && !completed;
+    }
+
+    @Override
+    public void pause() {
+        paused = true;
+        if (isPlaying()) currentPlayer().pause();
+    }
+
+    @Override
+    public void resume() {
+        paused = false;
+        if (completed) {
+            seekTo(0, true);
+            return;
+        }
+        MediaPlayer mp = currentPlayer();
+        if (mp != null && started && prepared.get(current) && !waitingForNext) mp.start();
+    }
+
+    /** Somme des segments préparés. */
+    @Override
+    public int getDuration() {
+        int total = 0;
+        for (int d : durations) if (d > 0) total += d;
+        return total;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        if (completed) return 0;
+        int pos = offsetOf(current);
+        MediaPlayer mp = currentPlayer();
+        if (mp != null && prepared.get(current) && !waitingForNext) pos += mp.getCurrentPosition();
+        return pos;
+    }
+
+    @Override
+    public void seekTo(int positionMs) {
+        seekTo(positionMs, !paused && !completed);
+    }
+
+    private void seekTo(int positionMs, boolean play) {
+        int index = 0;
+        int offset = 0;
+        while (index < players.size() - 1 && durations.get(index) >= 0
+                && positionMs >= offset + durations.get(index)) {
+            offset += durations.get(index);
+            index++;
+        }
+        if (index >= players.size() || !prepared.get(index)) return; // segment pas encore prêt
+        int previous = completed ? players.size() - 1 : current;
+        if (isPlaying()) currentPlayer().pause();
+        if (index < previous) rearm(index + 1, previous);
+        current = index;
+        waitingForNext = false;
+        completed = false;
+        MediaPlayer mp = players.get(index);
+        mp.seekTo(positionMs - offset);
+        if (play) mp.start();
+    }
+
+    @Override
+    public void release() {
+        for (MediaPlayer mp : players) {
+            try {
+                if (mp.isPlaying()) mp.stop();
+            } catch (IllegalStateException ignored) {
+                // pas encore préparé
+            }
+            mp.release();
+        }
+        players.clear();
+        prepared.clear();
+        durations.clear();
+        prepareStarts.clear();
+    }
+
+    private int offsetOf(int index) {
+        int offset = 0;
+        for (int i = 0; i < index; i++) offset += Math.max(0, durations.get(i));
+        return offset;
+    }
+
+    private MediaPlayer currentPlayer() {
+        return current < players.size() ? players.get(current) : null;
+    }
+}
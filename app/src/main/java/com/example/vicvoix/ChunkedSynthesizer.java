@@ -0,0 +1,457 @@
+package com.example.vicvoix;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Synthétise une liste de segments en parallèle (au plus {@link #MAX_IN_FLIGHT}
+ * appels simultanés) et livre les fichiers audio dans l'ordre du texte,
+ * dès que le segment suivant est disponible.
+ * Deux demandes identiques en vol partagent un seul appel HTTP.
+ * En lecture, le {@link SynthesisRouter} peut servir un segment par le moteur de l'appareil.
+ * Chaque appel passe par le {@link RequestScheduler} (quotas, priorité, reprises).
+ */
+public final class ChunkedSynthesizer {
+    public static final int MAX_IN_FLIGHT = 3;
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    /** Appelé sur un thread OkHttp, sous le verrou du job : rester bref (poster vers l'UI). */
+    public interface Listener {
+        void onChunkReady(int index, int total, File audio);
+        void onComplete(List<File> chunks);
+        void onError(String message);
+    }
+
+    /** Synthèse en cours qu'une {@link SynthesisSession} peut interrompre. */
+    public interface Cancellable {
+        void cancel();
+    }
+
+    private final Supplier<OkHttpClient> client;
+    private final String endpoint;
+    private final AudioCache cache;
+    private final TtsMetrics metrics;
+    private final SynthesisRouter router;
+    private final RequestScheduler scheduler;
+    private final Map<String, InFlight> inFlight = new HashMap<>(); // par cacheKey
+
+    public ChunkedSynthesizer(Supplier<OkHttpClient> client, String endpoint, AudioCache cache, TtsMetrics metrics,
+                              SynthesisRouter router, RequestScheduler scheduler) {
+        this.client = client;
+        this.endpoint = endpoint;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.router = router;
+        this.scheduler = scheduler;
+    }
+
+    /** Synthèse synchrone d'un segment (cache d'abord) ; à appeler hors thread UI. */
+    public File fetch(SynthesisRequest req, RequestScheduler.Lane lane) throws IOException {
+        File cached = cache.get(req.cacheKey());
+        if (cached != null) return cached;
+        return await(req, join(req, lane));
+    }
+
+    /**
+     * Comme {@link #fetch(SynthesisRequest, RequestScheduler.Lane)}, mais l'audio est aussi recopié
+     * dans {@code live} au fur et à mesure du décodage (lecture sans attendre la fin du téléchargement).
+     * Si la même requête est déjà en vol, on l'attend puis on relit le fichier.
+     * File de lecture, sans reprise : l'audio a pu partir en partie vers {@code live}.
+     */
+    public File fetch(SynthesisRequest req, OutputStream live) throws IOException {
+        String key = req.cacheKey();
+        File audio = cache.get(key);
+        if (audio == null) {
+            InFlight own = new InFlight();
+            InFlight joined = joinOrRegister(key, RequestScheduler.Lane.INTERACTIVE, own, null);
+            if (joined != null) {
+                audio = await(req, joined);
+            } else {
+                File result = null;
+                IOException error = new InterruptedIOException("Synthèse interrompue");
+                RequestScheduler.Attempt<File> attempt = null;
+                try {
+                    attempt = scheduler.acquire(RequestScheduler.Lane.INTERACTIVE, req.text.length());
+                    try (Response r = client.get().newCall(buildRequest(req)).execute()) {
+                        if (!r.isSuccessful()) throw TtsApiException.from(r);
+                        result = decodeToCache(r, req, live);
+                    }
+                    error = null;
+                    return result;
+                } catch (IOException e) {
+                    error = e;
+                    throw e;
+                } finally {
+                    if (attempt != null) {
+                        if (error == null) {
+                            attempt.succeed(result);
+                        } else {
+                            attempt.fail(error);
+                        }
+                    }
+                    // Les requêtes qui nous ont rejoints sont libérées dans tous les cas
+                    settle(key, own, result, error);
+                }
+            }
+        }
+        byte[] buffer = BufferPool.shared().acquire();
+        try (InputStream in = new FileInputStream(audio)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) live.write(buffer, 0, n);
+        } finally {
+            BufferPool.shared().release(buffer);
+        }
+        return audio;
+    }
+
+    // --- Fusion des requêtes identiques en vol (double appui, lecture puis export du même texte) ---
+
+    private static final class InFlight {
+        final CompletableFuture<File> future = new CompletableFuture<>();
+        RequestScheduler.Ticket<File> ticket; // null pour un appel synchrone
+        int waiters = 1;
+    }
+
+    /**
+     * Rejoint l'appel en vol pour cette clé, ou le met en file dans {@code lane}.
+     * L'appelant doit {@link #release} ou attendre.
+     */
+    private InFlight join(SynthesisRequest req, RequestScheduler.Lane lane) {
+        String key = req.cacheKey();
+        InFlight started = new InFlight();
+        InFlight existing = joinOrRegister(key, lane, started,
+                () -> scheduler.submit(lane, req.text.length(), attempt -> send(req, attempt)));
+        if (existing != null) return existing;
+        started.ticket.future.whenComplete((audio, error) -> settle(key, started, audio,
+                error instanceof IOException ? (IOException) error : error == null ? null : new IOException(error)));
+        return started;
+    }
+
+    /**
+     * Rejoint l'appel en vol pour {@code key} et le fait passer dans {@code lane} ; sinon inscrit
+     * {@code fresh}, avec le ticket rendu par {@code submit} (null : appel synchrone de l'appelant).
+     * @return l'appel rejoint, ou null si {@code fresh} a été inscrit
+     */
+    private InFlight joinOrRegister(String key, RequestScheduler.Lane lane, InFlight fresh,
+                                    Supplier<RequestScheduler.Ticket<File>> submit) {
+        InFlight existing;
+        synchronized (inFlight) {
+            existing = inFlight.get(key);
+            if (existing != null) {
+                existing.waiters++;
+            } else {
+                if (submit != null) fresh.ticket = submit.get();
+                inFlight.put(key, fresh);
+            }
+        }
+        // Ex. « Générer » ou lecture d'une phrase en pré-synthèse : elle passe devant les lots.
+        // Sans ticket (appel synchrone en cours), on attend simplement son futur, réglé par settle().
+        if (existing != null && existing.ticket != null) existing.ticket.promote(lane);
+        return existing;
+    }
+
+    // Un essai de l'ordonnanceur : un appel HTTP asynchrone
+    private Cancellable send(SynthesisRequest req, RequestScheduler.Attempt<File> attempt) {
+        long startedAt = System.nanoTime();
+        Call call = client.get().newCall(buildRequest(req));
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                attempt.fail(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    if (!r.isSuccessful()) throw TtsApiException.from(r);
+                    File audio = decodeToCache(r, req);
+                    // Le flux direct (appel synchrone) est freiné par le lecteur : pas d'échantillon
+                    router.recordCloud(req.text.length(), System.nanoTime() - startedAt);
+                    attempt.succeed(audio);
+                } catch (IOException e) {
+                    attempt.fail(e);
+                }
+            }
+        });
+        return call::cancel;
+    }
+
+    private void settle(String key, InFlight f, File audio, IOException error) {
+        synchronized (inFlight) {
+            if (inFlight.get(key) == f) inFlight.remove(key);
+        }
+        if (error != null) {
+            f.future.completeExceptionally(error);
+        } else {
+            f.future.complete(audio);
+        }
+    }
+
+    /** Un intéressé de moins ; l'appel HTTP n'est annulé (ou retiré de la file) que s'il n'en reste aucun. */
+    private void release(String key, InFlight f) {
+        RequestScheduler.Ticket<File> toCancel = null;
+        synchronized (inFlight) {
+            if (--f.waiters == 0 && !f.future.isDone() && f.ticket != null) {
+                if (inFlight.get(key) == f) inFlight.remove(key);
+                toCancel = f.ticket;
+            }
+        }
+        if (toCancel != null) toCancel.cancel();
+    }
+
+    private File await(SynthesisRequest req, InFlight f) throws IOException {
+        try {
+            return f.future.get();
+        } catch (InterruptedException e) {
+            release(req.cacheKey(), f);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Synthèse interrompue");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Met un segment en cache sans l'attendre (pré-synthèse). Une synthèse ultérieure du même
+     * segment rejoint cet appel ; l'annuler ne coupe le réseau que si personne d'autre ne l'attend.
+     * File d'arrière-plan : jamais devant une lecture ou un téléchargement.
+     */
+    public Prefetch prefetch(SynthesisRequest req) {
+        File cached = cache.get(req.cacheKey());
+        if (cached != null) return new Prefetch(req, null, CompletableFuture.completedFuture(cached));
+        InFlight f = join(req, RequestScheduler.Lane.BACKGROUND);
+        return new Prefetch(req, f, f.future);
+    }
+
+    public final class Prefetch implements Cancellable {
+        private final SynthesisRequest req;
+        private InFlight inFlight;
+        public final CompletableFuture<File> future;
+
+        Prefetch(SynthesisRequest req, InFlight inFlight, CompletableFuture<File> future) {
+            this.req = req;
+            this.inFlight = inFlight;
+            this.future = future;
+        }
+
+        @Override
+        public void cancel() {
+            InFlight f;
+            synchronized (this) {
+                f = inFlight;
+                inFlight = null;
+            }
+            if (f != null) release(req.cacheKey(), f);
+        }
+    }
+
+    /** Message d'erreur affiché pour un échec de synthèse. */
+    static String describe(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+        // TtsApiException porte déjà "Erreur API: <code>"
+        return error instanceof TtsApiException ? error.getMessage() : "Erreur réseau: " + error.getMessage();
+    }
+
+    private Request buildRequest(SynthesisRequest req) {
+        return new Request.Builder()
+                .url(endpoint)
+                .post(RequestBody.create(req.toJson(), JSON))
+                .tag(SynthesisRequest.class, req) // voix pour MetricsEventListener
+                .build();
+    }
+
+    /**
+     * {@code lane} : priorité auprès de l'ordonnanceur ; {@code allowLocal} : segments routables
+     * vers le moteur de l'appareil (lecture seulement).
+     */
+    public Job start(List<SynthesisRequest> requests, Listener listener, RequestScheduler.Lane lane,
+                     boolean allowLocal) {
+        Job job = new Job(requests, listener, lane, allowLocal);
+        job.pump();
+        return job;
+    }
+
+    public final class Job implements Cancellable {
+        private final List<SynthesisRequest> requests;
+        private final Listener listener;
+        private final RequestScheduler.Lane lane;
+        private final boolean allowLocal;
+        private final File[] results;
+        private final InFlight[] pending;
+        private int nextToStart;
+        private int nextToDeliver;
+        private int inFlightCount;
+        private boolean finished;
+
+        Job(List<SynthesisRequest> requests, Listener listener, RequestScheduler.Lane lane, boolean allowLocal) {
+            this.requests = requests;
+            this.listener = listener;
+            this.lane = lane;
+            this.allowLocal = allowLocal;
+            this.results = new File[requests.size()];
+            this.pending = new InFlight[requests.size()];
+        }
+
+        @Override
+        public synchronized void cancel() {
+            finished = true;
+            for (int i = 0; i < pending.length; i++) {
+                if (pending[i] != null) {
+                    release(requests.get(i).cacheKey(), pending[i]);
+                    pending[i] = null;
+                }
+            }
+        }
+
+        private synchronized void pump() {
+            while (!finished && inFlightCount < MAX_IN_FLIGHT && nextToStart < requests.size()) {
+                int index = nextToStart++;
+                SynthesisRequest req = requests.get(index);
+                File cached = cache.get(req.cacheKey());
+                if (cached != null) {
+                    results[index] = cached;
+                    continue;
+                }
+                inFlightCount++;
+                CompletableFuture<File> audio = allowLocal
+                        ? router.route(req, () -> joinPending(index, req))
+                        : joinPending(index, req);
+                audio.whenComplete((file, error) -> onFetched(index, file, error));
+            }
+            deliver();
+        }
+
+        private CompletableFuture<File> joinPending(int index, SynthesisRequest req) {
+            InFlight f = join(req, lane);
+            pending[index] = f;
+            return f.future;
+        }
+
+        private void onFetched(int index, File audio, Throwable error) {
+            synchronized (this) {
+                if (finished) {
+                    // Job annulé : un fichier du moteur local ne sera jamais lu
+                    if (audio != null) router.releaseLocal(audio);
+                    return;
+                }
+                // Segment servi en local : l'appel cloud continue seul et remplira le cache
+                pending[index] = null;
+                if (error != null) {
+                    fail(describe(error));
+                    return;
+                }
+                results[index] = audio;
+                inFlightCount--;
+            }
+            pump();
+        }
+
+        private void deliver() {
+            while (!finished && nextToDeliver < results.length && results[nextToDeliver] != null) {
+                listener.onChunkReady(nextToDeliver, results.length, results[nextToDeliver]);
+                nextToDeliver++;
+            }
+            if (!finished && nextToDeliver == results.length) {
+                finished = true;
+                listener.onComplete(Arrays.asList(results));
+            }
+        }
+
+        private synchronized void fail(String message) {
+            if (finished) return;
+            cancel();
+            listener.onError(message);
+        }
+    }
+
+    // audioContent est décodé en flux directement dans le fichier de cache
+    private File decodeToCache(Response response, SynthesisRequest req) throws IOException {
+        return decodeToCache(response, req, null);
+    }
+
+    private File decodeToCache(Response response, SynthesisRequest req, OutputStream live) throws IOException {
+        File tmp = cache.newTempFile(req.cacheKey());
+        long start = System.nanoTime();
+        TimedOutputStream file = null;
+        try (OutputStream os = new FileOutputStream(tmp)) {
+            file = new TimedOutputStream(os);
+            AudioContentDecoder.decode(response.body().byteStream(), live == null ? file : new Tee(file, live));
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        File committed = cache.commit(req.cacheKey(), tmp);
+        // decode inclut l'attente du réseau et l'écriture, write n'isole que le disque
+        metrics.record(TtsMetrics.DECODE, req.voiceName, System.nanoTime() - start);
+        metrics.record(TtsMetrics.WRITE, req.voiceName, file.nanos);
+        return committed;
+    }
+
+    private static final class TimedOutputStream extends OutputStream {
+        private final OutputStream out;
+        long nanos;
+
+        TimedOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long t = System.nanoTime();
+            out.write(b);
+            nanos += System.nanoTime() - t;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long t = System.nanoTime();
+            out.write(b, off, len);
+            nanos += System.nanoTime() - t;
+        }
+    }
+
+    private static final class Tee extends OutputStream {
+        private final OutputStream first;
+        private final OutputStream second;
+
+        Tee(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+    }
+}
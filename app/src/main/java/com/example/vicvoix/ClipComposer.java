@@ -0,0 +1,253 @@
+package com.example.vicvoix;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assemble des clips (voix éventuellement différentes) en un seul fichier, séparés par des silences,
+ * sans décoder ni réencoder : trames MP3 recopiées telles quelles, PCM sous un seul en-tête WAV.
+ * Mémoire constante : les données passent par {@link FileChannel#transferTo}, les silences
+ * par un tampon de {@link BufferPool}.
+ */
+public final class ClipComposer {
+    private static final int ID3V1_SIZE = 128;
+
+    private ClipComposer() {}
+
+    /** @return octets écrits */
+    public static long compose(List<File> clips, String audioEncoding, long silenceMs, WritableByteChannel out)
+            throws IOException {
+        if (SynthesisRequest.ENCODING_LINEAR16.equals(audioEncoding)) return composeWav(clips, silenceMs, out);
+        if (SynthesisRequest.ENCODING_MP3.equals(audioEncoding)) return composeMp3(clips, silenceMs, out);
+        // Ogg Opus : flux chaînés valides, mais pas de trame de silence sans encodeur
+        if (silenceMs > 0) throw new IOException("Silences non pris en charge en Ogg Opus");
+        return TtsEngine.writeClip(clips, audioEncoding, out);
+    }
+
+    // --- WAV : un en-tête, le PCM de chaque clip, des zéros entre eux ---
+
+    private static long composeWav(List<File> clips, long silenceMs, WritableByteChannel out) throws IOException {
+        WavFormat.Info[] infos = new WavFormat.Info[clips.size()];
+        long total = 0;
+        for (int i = 0; i < infos.length; i++) {
+            infos[i] = WavFormat.readInfo(clips.get(i));
+            if (infos[i].sampleRateHz != infos[0].sampleRateHz || infos[i].channels != infos[0].channels) {
+                throw new IOException("Clips WAV de formats différents");
+            }
+            total += infos[i].dataLength;
+        }
+        if (infos.length == 0) return 0;
+        int frameSize = infos[0].channels * 2;
+        long silenceBytes = silenceMs * infos[0].sampleRateHz / 1000 * frameSize;
+        total += silenceBytes * (infos.length - 1);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(WavFormat.HEADER_SIZE);
+        WavFormat.writeHeader(header, infos[0].sampleRateHz, infos[0].channels, total);
+        writeFully(out, ByteBuffer.wrap(header.toByteArray()));
+        byte[] buffer = BufferPool.shared().acquire();
+        try {
+            Arrays.fill(buffer, (byte) 0); // tampon recyclé : contenu quelconque
+            ByteBuffer zeros = ByteBuffer.wrap(buffer);
+            for (int i = 0; i < infos.length; i++) {
+                if (i > 0) {
+                    for (long left = silenceBytes; left > 0; left -= zeros.limit()) {
+                        zeros.clear();
+                        zeros.limit((int) Math.min(zeros.capacity(), left));
+                        writeFully(out, zeros);
+                    }
+                }
+                try (FileInputStream in = new FileInputStream(clips.get(i))) {
+                    WavFormat.transferFully(in.getChannel(), infos[i].dataOffset, infos[i].dataLength, out);
+                }
+            }
+        } finally {
+            BufferPool.shared().release(buffer);
+        }
+        return WavFormat.HEADER_SIZE + total;
+    }
+
+    // --- MP3 : trames audio de chaque clip (sans ID3 ni trame Xing/Info), trames muettes entre eux ---
+
+    private static long composeMp3(List<File> clips, long silenceMs, WritableByteChannel out) throws IOException {
+        Mp3Range[] ranges = new Mp3Range[clips.size()];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = Mp3Range.of(clips.get(i));
+            if (ranges[i].frame.sampleRateHz != ranges[0].frame.sampleRateHz) {
+                throw new IOException("Clips MP3 de fréquences différentes");
+            }
+        }
+        long written = 0;
+        for (int i = 0; i < ranges.length; i++) {
+            if (i > 0 && silenceMs > 0) {
+                // Trame muette calquée sur la première trame du clip précédent (même débit, même mode)
+                ByteBuffer silent = ByteBuffer.wrap(ranges[i - 1].frame.silentFrame());
+                long frames = (silenceMs * ranges[i - 1].frame.sampleRateHz / 1000
+                        + ranges[i - 1].frame.samplesPerFrame - 1) / ranges[i - 1].frame.samplesPerFrame;
+                for (long f = 0; f < frames; f++) {
+                    silent.rewind();
+                    written += writeFully(out, silent);
+                }
+            }
+            try (FileInputStream in = new FileInputStream(clips.get(i))) {
+                WavFormat.transferFully(in.getChannel(), ranges[i].start, ranges[i].length, out);
+            }
+            written += ranges[i].length;
+        }
+        return written;
+    }
+
+    /** Portion d'un fichier MP3 qui ne contient que des trames audio. */
+    private static final class Mp3Range {
+        final Mp3Frame frame; // première trame audio
+        final long start;
+        final long length;
+
+        private Mp3Range(Mp3Frame frame, long start, long length) {
+            this.frame = frame;
+            this.start = start;
+            this.length = length;
+        }
+
+        static Mp3Range of(File file) throws IOException {
+            long size = file.length();
+            byte[] head = new byte[4096];
+            int n;
+            try (InputStream in = new FileInputStream(file)) {
+                n = readFully(in, head);
+            }
+            int pos = 0;
+            // ID3v2 : "ID3", version, drapeaux, taille en entiers de 7 bits
+            if (n >= 10 && head[0] == 'I' && head[1] == 'D' && head[2] == '3') {
+                pos = 10 + ((head[6] & 0x7F) << 21 | (head[7] & 0x7F) << 14 | (head[8] & 0x7F) << 7 | head[9] & 0x7F);
+                if ((head[5] & 0x10) != 0) pos += 10; // pied de page
+                if (pos + 4 > n) {
+                    // Gros tag (pochette...) : on relit après lui
+                    try (FileInputStream in = new FileInputStream(file)) {
+                        in.getChannel().position(pos);
+                        n = readFully(in, head);
+                    }
+                    return locate(file, head, n, 0, pos, size);
+                }
+            }
+            return locate(file, head, n, pos, 0, size);
+        }
+
+        private static Mp3Range locate(File file, byte[] head, int n, int pos, long base, long size)
+                throws IOException {
+            while (pos + 4 <= n && Mp3Frame.parse(head, pos) == null) pos++;
+            Mp3Frame frame = pos + 4 <= n ? Mp3Frame.parse(head, pos) : null;
+            if (frame == null) throw new IOException("Aucune trame MP3 dans " + file.getName());
+            long start = base + pos;
+            // Trame d'en-tête VBR (Xing / Info / VBRI) : muette, et fausserait la durée une fois au milieu
+            if (frame.isVbrHeader(head, pos, n)) {
+                start += frame.length;
+                if (pos + frame.length + 4 <= n) {
+                    Mp3Frame next = Mp3Frame.parse(head, pos + frame.length);
+                    if (next != null) frame = next;
+                }
+            }
+            long end = size;
+            if (size - start >= ID3V1_SIZE && hasId3v1(file, size)) end -= ID3V1_SIZE;
+            return new Mp3Range(frame, start, Math.max(0, end - start));
+        }
+
+        private static boolean hasId3v1(File file, long size) throws IOException {
+            byte[] tag = new byte[3];
+            try (FileInputStream in = new FileInputStream(file)) {
+                in.getChannel().position(size - ID3V1_SIZE);
+                if (readFully(in, tag) < 3) return false;
+            }
+            return tag[0] == 'T' && tag[1] == 'A' && tag[2] == 'G';
+        }
+    }
+
+    /** En-tête de trame MPEG audio Layer III. */
+    static final class Mp3Frame {
+        private static final int[] BITRATES_V1 = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+        private static final int[] BITRATES_V2 = {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160};
+        private static final int[] SAMPLE_RATES_V1 = {44100, 48000, 32000};
+
+        final byte[] header = new byte[4];
+        final boolean mpeg1;
+        final boolean mono;
+        final int sampleRateHz;
+        final int samplesPerFrame;
+        final int length;
+
+        private Mp3Frame(byte[] b, int at, boolean mpeg1, boolean mono, int sampleRateHz, int length) {
+            System.arraycopy(b, at, header, 0, 4);
+            this.mpeg1 = mpeg1;
+            this.mono = mono;
+            this.sampleRateHz = sampleRateHz;
+            this.samplesPerFrame = mpeg1 ? 1152 : 576;
+            this.length = length;
+        }
+
+        /** Trame valide à {@code at}, ou null. */
+        static Mp3Frame parse(byte[] b, int at) {
+            if ((b[at] & 0xFF) != 0xFF || (b[at + 1] & 0xE0) != 0xE0) return null;
+            int version = (b[at + 1] >> 3) & 0x3; // 3 = MPEG-1, 2 = MPEG-2, 0 = MPEG-2.5
+            int layer = (b[at + 1] >> 1) & 0x3;   // 1 = Layer III
+            int bitrateIndex = (b[at + 2] >> 4) & 0xF;
+            int rateIndex = (b[at + 2] >> 2) & 0x3;
+            if (version == 1 || layer != 1 || bitrateIndex == 0 || bitrateIndex == 15 || rateIndex == 3) return null;
+            boolean mpeg1 = version == 3;
+            int sampleRate = SAMPLE_RATES_V1[rateIndex] / (mpeg1 ? 1 : version == 2 ? 2 : 4);
+            int bitrate = (mpeg1 ? BITRATES_V1 : BITRATES_V2)[bitrateIndex] * 1000;
+            int padding = (b[at + 2] >> 1) & 0x1;
+            int length = (mpeg1 ? 144 : 72) * bitrate / sampleRate + padding;
+            boolean mono = ((b[at + 3] >> 6) & 0x3) == 3;
+            return new Mp3Frame(b, at, mpeg1, mono, sampleRate, length);
+        }
+
+        private int sideInfoLength() {
+            return mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        }
+
+        boolean isVbrHeader(byte[] b, int at, int n) {
+            int xing = at + 4 + sideInfoLength();
+            if (xing + 4 <= n && (tagAt(b, xing, "Xing") || tagAt(b, xing, "Info"))) return true;
+            return at + 40 <= n && tagAt(b, at + 36, "VBRI");
+        }
+
+        private static boolean tagAt(byte[] b, int at, String tag) {
+            for (int i = 0; i < 4; i++) if (b[at + i] != tag.charAt(i)) return false;
+            return true;
+        }
+
+        /**
+         * Même en-tête sans remplissage ni CRC, puis des zéros : informations annexes nulles
+         * (aucune donnée, gain nul, main_data_begin = 0), que tout décodeur rend en silence.
+         */
+        byte[] silentFrame() {
+            byte[] h = header.clone();
+            h[1] |= 0x01;               // protection_bit = 1 : pas de CRC
+            h[2] &= ~0x02;              // pas d'octet de remplissage
+            Mp3Frame unpadded = parse(h, 0);
+            byte[] frame = new byte[unpadded.length];
+            System.arraycopy(h, 0, frame, 0, 4);
+            return frame;
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] b) throws IOException {
+        int n = 0;
+        int r;
+        while (n < b.length && (r = in.read(b, n, b.length - n)) != -1) n += r;
+        return n;
+    }
+
+    private static int writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        int n = buffer.remaining();
+        while (buffer.hasRemaining()) out.write(buffer);
+        return n;
+    }
+}
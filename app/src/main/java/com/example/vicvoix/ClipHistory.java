@@ -0,0 +1,262 @@
+package com.example.vicvoix;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.media.MediaMetadataRetriever;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Historique des clips générés : une ligne SQLite par document (texte, voix, réglages, durée,
+ * taille, fichier audio), index plein texte FTS4 sur le texte, pagination par curseur
+ * (created_at, _id) pour rester instantané sur des milliers d'entrées.
+ * L'audio est recopié hors du cache LRU (files/history) : la relecture ne touche jamais le réseau.
+ * Lectures et écritures passent par un seul thread dédié.
+ */
+public final class ClipHistory extends SQLiteOpenHelper {
+    private static final String TAG = "VicVoixTTS";
+    private static final String DB_NAME = "history.db";
+    private static final int DB_VERSION = 1;
+
+    public static final class Entry {
+        public final long id;
+        public final String text;
+        public final String languageCode;
+        public final String voiceName;
+        public final String audioEncoding;
+        public final float speakingRate;
+        public final float pitch;
+        public final long durationMs;
+        public final long sizeBytes;
+        public final File audio;
+        public final long createdAt;
+
+        Entry(Cursor c) {
+            id = c.getLong(0);
+            text = c.getString(1);
+            languageCode = c.getString(2);
+            voiceName = c.getString(3);
+            audioEncoding = c.getString(4);
+            speakingRate = c.getFloat(5);
+            pitch = c.getFloat(6);
+            durationMs = c.getLong(7);
+            sizeBytes = c.getLong(8);
+            audio = new File(c.getString(9));
+            createdAt = c.getLong(10);
+        }
+    }
+
+    private static final String COLUMNS = "c._id, c.text, c.language, c.voice, c.encoding, c.speaking_rate, "
+            + "c.pitch, c.duration_ms, c.size_bytes, c.path, c.created_at";
+
+    private final File dir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public ClipHistory(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        dir = new File(context.getFilesDir(), "history");
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE clips ("
+                + "_id INTEGER PRIMARY KEY,"
+                + "fingerprint TEXT NOT NULL UNIQUE," // empreintes des segments : même document = même ligne
+                + "text TEXT NOT NULL,"
+                + "language TEXT NOT NULL,"
+                + "voice TEXT NOT NULL,"
+                + "encoding TEXT NOT NULL,"
+                + "speaking_rate REAL NOT NULL,"
+                + "pitch REAL NOT NULL,"
+                + "duration_ms INTEGER NOT NULL,"
+                + "size_bytes INTEGER NOT NULL,"
+                + "path TEXT NOT NULL,"
+                + "created_at INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX clips_created ON clips(created_at, _id)");
+        // Table FTS à contenu externe : le texte n'est stocké qu'une fois, les triggers tiennent l'index à jour
+        db.execSQL("CREATE VIRTUAL TABLE clips_fts USING fts4(content=\"clips\", text, tokenize=unicode61)");
+        db.execSQL("CREATE TRIGGER clips_ai AFTER INSERT ON clips BEGIN "
+                + "INSERT INTO clips_fts(docid, text) VALUES (new._id, new.text); END");
+        db.execSQL("CREATE TRIGGER clips_bd BEFORE DELETE ON clips BEGIN "
+                + "DELETE FROM clips_fts WHERE docid = old._id; END");
+        db.execSQL("CREATE TRIGGER clips_bu BEFORE UPDATE OF text ON clips BEGIN "
+                + "DELETE FROM clips_fts WHERE docid = old._id; END");
+        db.execSQL("CREATE TRIGGER clips_au AFTER UPDATE OF text ON clips BEGIN "
+                + "INSERT INTO clips_fts(docid, text) VALUES (new._id, new.text); END");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Première version du schéma
+    }
+
+    /**
+     * Archive un document synthétisé : copie de l'audio assemblé puis insertion, en arrière-plan.
+     * Un document déjà présent remonte simplement en tête.
+     */
+    public void record(List<SynthesisRequest> requests, List<File> chunks) {
+        if (requests.isEmpty()) return;
+        List<File> files = new ArrayList<>(chunks);
+        post(() -> {
+            try {
+                insert(requests, files);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "ClipHistory.record", e);
+            }
+        });
+    }
+
+    private void insert(List<SynthesisRequest> requests, List<File> chunks) throws IOException {
+        SynthesisRequest first = requests.get(0);
+        StringBuilder keys = new StringBuilder();
+        StringBuilder text = new StringBuilder();
+        for (SynthesisRequest req : requests) {
+            keys.append(req.cacheKey());
+            if (text.length() > 0) text.append(' ');
+            text.append(req.text);
+        }
+        String fingerprint = SynthesisRequest.sha256Hex(keys.toString());
+        SQLiteDatabase db = getWritableDatabase();
+        long now = System.currentTimeMillis();
+
+        ContentValues touch = new ContentValues();
+        touch.put("created_at", now);
+        if (db.update("clips", touch, "fingerprint = ?", new String[]{fingerprint}) > 0) return;
+
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Impossible de créer " + dir);
+        File audio = new File(dir, fingerprint + SynthesisRequest.extensionOf(first.audioEncoding));
+        File tmp = new File(dir, audio.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            TtsEngine.writeClip(chunks, first.audioEncoding, out.getChannel());
+        }
+        if (!tmp.renameTo(audio)) {
+            tmp.delete();
+            throw new IOException("Impossible d'écrire " + audio);
+        }
+
+        ContentValues values = new ContentValues();
+        values.put("fingerprint", fingerprint);
+        values.put("text", text.toString());
+        values.put("language", first.languageCode);
+        values.put("voice", first.voiceName);
+        values.put("encoding", first.audioEncoding);
+        values.put("speaking_rate", first.speakingRate);
+        values.put("pitch", first.pitch);
+        values.put("duration_ms", durationMs(audio, first.audioEncoding));
+        values.put("size_bytes", audio.length());
+        values.put("path", audio.getAbsolutePath());
+        values.put("created_at", now);
+        db.insertOrThrow("clips", null, values);
+    }
+
+    private static long durationMs(File audio, String encoding) {
+        try {
+            if (SynthesisRequest.ENCODING_LINEAR16.equals(encoding)) {
+                WavFormat.Info info = WavFormat.readInfo(audio);
+                return info.dataLength * 1000 / info.bytesPerSecond();
+            }
+            MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+            try {
+                retriever.setDataSource(audio.getAbsolutePath());
+                String d = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+                return d != null ? Long.parseLong(d) : 0;
+            } finally {
+                retriever.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "ClipHistory.durationMs", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Page suivante, du plus récent au plus ancien. {@code query} vide : tout l'historique ;
+     * sinon chaque mot doit apparaître (préfixe accepté). {@code after} : dernière entrée de la page
+     * précédente, ou null pour la première.
+     */
+    public CompletableFuture<List<Entry>> page(String query, Entry after, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            String match = toMatchQuery(query);
+            List<String> args = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM clips c");
+            String where = " WHERE ";
+            if (match != null) {
+                sql.append(" JOIN clips_fts f ON f.docid = c._id WHERE clips_fts MATCH ?");
+                args.add(match);
+                where = " AND ";
+            }
+            if (after != null) {
+                // Curseur plutôt qu'OFFSET : coût constant quelle que soit la page
+                sql.append(where).append("(c.created_at < ? OR (c.created_at = ? AND c._id < ?))");
+                args.add(Long.toString(after.createdAt));
+                args.add(Long.toString(after.createdAt));
+                args.add(Long.toString(after.id));
+            }
+            sql.append(" ORDER BY c.created_at DESC, c._id DESC LIMIT ").append(limit);
+            List<Entry> entries = new ArrayList<>();
+            try (Cursor c = getReadableDatabase().rawQuery(sql.toString(), args.toArray(new String[0]))) {
+                while (c.moveToNext()) entries.add(new Entry(c));
+            }
+            return entries;
+        }, executor);
+    }
+
+    // Mots de la saisie en requête FTS : "bonj gare" -> bonj* gare* (ET implicite)
+    static String toMatchQuery(String query) {
+        if (query == null) return null;
+        StringBuilder match = new StringBuilder();
+        for (String word : query.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            // Minuscules : AND / OR / NOT / NEAR ne doivent pas devenir des opérateurs
+            match.append(word.toLowerCase(Locale.ROOT)).append('*');
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    public CompletableFuture<Void> delete(Entry entry) {
+        return CompletableFuture.runAsync(() -> {
+            getWritableDatabase().delete("clips", "_id = ?", new String[]{Long.toString(entry.id)});
+            if (!entry.audio.delete() && entry.audio.exists()) {
+                throw new CompletionException(new IOException("Suppression impossible: " + entry.audio));
+            }
+        }, executor);
+    }
+
+    /** Sous pression mémoire : rend au système le cache de pages de SQLite. */
+    public void trimMemory() {
+        post(SQLiteDatabase::releaseMemory);
+    }
+
+    /**
+     * La base est fermée par une dernière tâche, après celles déjà en file : fermée plus tôt,
+     * un {@code record} en attente la rouvrirait.
+     */
+    public void shutdown() {
+        if (post(this::close)) executor.shutdown();
+    }
+
+    // Tâche sans résultat ; ignorée après shutdown() (ex. onTrimMemory tardif)
+    private boolean post(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.vicvoix;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Bundle;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Moteur TTS de l'appareil ({@link TextToSpeech#synthesizeToFile}) pour le {@link SynthesisRouter} :
+ * une voix moins naturelle, mais disponible hors ligne et sans aller-retour réseau.
+ * Les fichiers WAV produits vivent dans le cache, hors {@link AudioCache} (ce n'est pas l'audio cloud),
+ * dans un dossier propre à cette instance : chacun est supprimé une fois lu ({@link #release}),
+ * et les dossiers des sessions précédentes au démarrage. Suppressions sur {@code background}.
+ */
+public final class DeviceTts implements SynthesisRouter.LocalSynthesizer {
+    private static final String TAG = "VicVoixTTS";
+
+    private final File dir;
+    private final Executor background;
+    private final TextToSpeech tts;
+    private final Map<String, PendingUtterance> pending = new HashMap<>();
+    private volatile boolean ready;
+
+    private static final class PendingUtterance {
+        final CompletableFuture<File> future = new CompletableFuture<>();
+        final File file;
+
+        PendingUtterance(File file) {
+            this.file = file;
+        }
+    }
+
+    public DeviceTts(Context context, Executor background) {
+        File root = new File(context.getCacheDir(), "device_tts");
+        dir = new File(root, UUID.randomUUID().toString());
+        this.background = background;
+        // Fichiers des sessions précédentes : jamais relus
+        background.execute(() -> deleteAllBut(root, dir));
+        tts = new TextToSpeech(context.getApplicationContext(), status -> {
+            ready = status == TextToSpeech.SUCCESS;
+            if (!ready) Log.w(TAG, "DeviceTts indisponible: " + status);
+        });
+        tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override
+            public void onStart(String utteranceId) {
+            }
+
+            @Override
+            public void onDone(String utteranceId) {
+                PendingUtterance p = take(utteranceId);
+                if (p != null) p.future.complete(p.file);
+            }
+
+            @Override
+            public void onError(String utteranceId) {
+                onError(utteranceId, TextToSpeech.ERROR);
+            }
+
+            @Override
+            public void onError(String utteranceId, int errorCode) {
+                PendingUtterance p = take(utteranceId);
+                if (p == null) return;
+                p.file.delete();
+                p.future.completeExceptionally(new IOException("Synthèse locale impossible (" + errorCode + ")"));
+            }
+        });
+    }
+
+    @Override
+    public boolean isAvailable(String languageCode) {
+        if (!ready) return false;
+        return tts.isLanguageAvailable(Locale.forLanguageTag(languageCode)) >= TextToSpeech.LANG_AVAILABLE;
+    }
+
+    @Override
+    public CompletableFuture<File> synthesize(SynthesisRequest request) {
+        if (!dir.isDirectory()) dir.mkdirs();
+        String id = UUID.randomUUID().toString();
+        PendingUtterance p = new PendingUtterance(new File(dir, id + ".wav"));
+        synchronized (pending) {
+            pending.put(id, p);
+        }
+        Bundle params = new Bundle();
+        int result;
+        // setLanguage et la mise en file doivent rester ensemble : la langue est lue à l'appel
+        synchronized (tts) {
+            tts.setLanguage(Locale.forLanguageTag(request.languageCode));
+            tts.setSpeechRate(request.speakingRate);
+            // Google : -20..20 demi-tons ; Android : multiplicateur, 1.0 = neutre
+            tts.setPitch((float) Math.pow(2, request.pitch / 12.0));
+            result = tts.synthesizeToFile(request.text, params, p.file, id);
+        }
+        if (result != TextToSpeech.SUCCESS) {
+            take(id);
+            p.future.completeExceptionally(new IOException("Synthèse locale refusée"));
+        }
+        return p.future;
+    }
+
+    @Override
+    public void release(File audio) {
+        if (dir.equals(audio.getParentFile())) background.execute(audio::delete);
+    }
+
+    private static void deleteAllBut(File root, File keep) {
+        File[] old = root.listFiles();
+        if (old == null) return;
+        for (File f : old) {
+            if (f.equals(keep)) continue;
+            File[] children = f.listFiles();
+            if (children != null) for (File c : children) c.delete();
+            f.delete();
+        }
+    }
+
+    private PendingUtterance take(String id) {
+        synchronized (pending) {
+            return pending.remove(id);
+        }
+    }
+
+    public void shutdown() {
+        tts.shutdown();
+        synchronized (pending) {
+            for (PendingUtterance p : pending.values()) {
+                p.future.completeExceptionally(new IOException("Synthèse locale interrompue"));
+            }
+            pending.clear();
+        }
+    }
+
+    /** Réseau validé (accès Internet effectif), pour router hors ligne sans attendre un échec. */
+    public static boolean isOnline(Context context) {
+        ConnectivityManager cm = context.getSystemService(ConnectivityManager.class);
+        Network network = cm != null ? cm.getActiveNetwork() : null;
+        NetworkCapabilities caps = network != null ? cm.getNetworkCapabilities(network) : null;
+        return caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+    }
+}
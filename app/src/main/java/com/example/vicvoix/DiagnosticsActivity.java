@@ -0,0 +1,191 @@
+package com.example.vicvoix;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Percentiles par phase et par voix, rafraîchis en continu, exportables en JSON / CSV.
+ * Règle aussi le budget de latence du routage cloud / appareil ; état de l'ordonnanceur des appels.
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+    private static final String TAG = "VicVoixTTS";
+    private static final long REFRESH_MS = 1000;
+    private static final long[] BUDGETS_MS = {800, 1500, 3000, 5000, SynthesisRouter.CLOUD_ONLY};
+    private static final String[] BUDGET_LABELS = {"800 ms", "1,5 s", "3 s", "5 s", "Cloud uniquement"};
+
+    private TextView tvMetrics;
+    private TextView tvRouting;
+    private TextView tvScheduler;
+    private Button btnCloudBudget;
+    private TtsService service;
+    private TtsMetrics metrics;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private ActivityResultLauncher<String> exportJsonLauncher;
+    private ActivityResultLauncher<String> exportCsvLauncher;
+
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            render();
+            handler.postDelayed(this, REFRESH_MS);
+        }
+    };
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            service = ((TtsService.LocalBinder) binder).getService();
+            metrics = service.engine().metrics();
+            render();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+            metrics = null;
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.diagnostics);
+        tvMetrics = findViewById(R.id.tvMetrics);
+        tvRouting = findViewById(R.id.tvRouting);
+        tvScheduler = findViewById(R.id.tvScheduler);
+        btnCloudBudget = findViewById(R.id.btnCloudBudget);
+        btnCloudBudget.setOnClickListener(v -> chooseCloudBudget());
+
+        exportJsonLauncher = registerForActivityResult(
+                new ActivityResultContracts.CreateDocument("application/json"), uri -> export(uri, false));
+        exportCsvLauncher = registerForActivityResult(
+                new ActivityResultContracts.CreateDocument("text/csv"), uri -> export(uri, true));
+
+        Button btnJson = findViewById(R.id.btnExportJson);
+        Button btnCsv = findViewById(R.id.btnExportCsv);
+        Button btnReset = findViewById(R.id.btnResetMetrics);
+        btnJson.setOnClickListener(v -> exportJsonLauncher.launch("VicVoix_metrics_" + System.currentTimeMillis() + ".json"));
+        btnCsv.setOnClickListener(v -> exportCsvLauncher.launch("VicVoix_metrics_" + System.currentTimeMillis() + ".csv"));
+        btnReset.setOnClickListener(v -> {
+            if (metrics != null) metrics.reset();
+            render();
+        });
+
+        bindService(new Intent(this, TtsService.class), connection, BIND_AUTO_CREATE);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        handler.post(refresh);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        handler.removeCallbacks(refresh);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        unbindService(connection);
+    }
+
+    private void chooseCloudBudget() {
+        new AlertDialog.Builder(this)
+                .setTitle("Délai max avant la voix de l'appareil")
+                .setItems(BUDGET_LABELS, (d, which) -> {
+                    if (service != null) service.setCloudBudgetMs(BUDGETS_MS[which]);
+                    render();
+                })
+                .show();
+    }
+
+    private void render() {
+        if (metrics == null) return;
+        renderRouting(service.engine().router());
+        renderScheduler(service.engine().scheduler().stats());
+        List<TtsMetrics.Row> rows = metrics.snapshot();
+        if (rows.isEmpty()) {
+            tvMetrics.setText("Aucune mesure : lancez une synthèse.");
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-12s %-24s %6s %8s %8s %8s %8s%n",
+                "phase", "voix", "n", "p50", "p95", "p99", "max"));
+        for (TtsMetrics.Row r : rows) {
+            sb.append(String.format(Locale.ROOT, "%-12s %-24s %6d %8.1f %8.1f %8.1f %8.1f%n",
+                    r.phase, r.voice, r.count, r.p50Ms, r.p95Ms, r.p99Ms, r.maxMs));
+        }
+        tvMetrics.setText(sb.toString());
+    }
+
+    private void renderRouting(SynthesisRouter router) {
+        long budget = router.budgetMs();
+        String label = budget + " ms";
+        for (int i = 0; i < BUDGETS_MS.length; i++) if (BUDGETS_MS[i] == budget) label = BUDGET_LABELS[i];
+        btnCloudBudget.setText("Budget cloud : " + label);
+        double shortMs = router.predictCloudMs(100);
+        double longMs = router.predictCloudMs(1000);
+        tvRouting.setText(shortMs < 0
+                ? "Latence cloud estimée : pas encore de mesure"
+                : String.format(Locale.ROOT, "Latence cloud estimée : %.0f ms (100 car.), %.0f ms (1000 car.)",
+                        shortMs, longMs));
+    }
+
+    private void renderScheduler(RequestScheduler.Stats s) {
+        String text = String.format(Locale.ROOT,
+                "Appels : %d en cours / %.1f max · en file : %d lecture, %d téléch., %d fond · %d reprises, %d freinés",
+                s.running, s.concurrency, s.queued[RequestScheduler.Lane.INTERACTIVE.ordinal()],
+                s.queued[RequestScheduler.Lane.DOWNLOAD.ordinal()], s.queued[RequestScheduler.Lane.BACKGROUND.ordinal()],
+                s.retries, s.throttled);
+        if (s.pausedMs > 0) text += String.format(Locale.ROOT, " · quota : pause %.1f s", s.pausedMs / 1000.0);
+        // Tampons créés : doit plafonner d'une génération à l'autre
+        BufferPool pool = BufferPool.shared();
+        text += String.format(Locale.ROOT, "\nTampons audio : %d créés, %d réutilisés, %d en réserve",
+                pool.allocated(), pool.reused(), pool.pooled());
+        tvScheduler.setText(text);
+    }
+
+    private void export(Uri uri, boolean csv) {
+        if (uri == null || metrics == null) return;
+        try (OutputStream os = getContentResolver().openOutputStream(uri)) {
+            if (os == null) throw new IOException("Fichier inaccessible");
+            Writer w = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+            if (csv) {
+                metrics.writeCsv(w);
+            } else {
+                metrics.writeJson(w, System.currentTimeMillis());
+            }
+            w.flush();
+            Toast.makeText(this, "Mesures exportées", Toast.LENGTH_SHORT).show();
+        } catch (IOException e) {
+            Toast.makeText(this, "Erreur export: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            Log.e(TAG, "DiagnosticsActivity.export", e);
+        }
+    }
+}
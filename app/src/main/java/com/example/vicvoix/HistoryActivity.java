@@ -0,0 +1,337 @@
+package com.example.vicvoix;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.text.format.DateUtils;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.ListView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Clips déjà générés : recherche plein texte, défilement par pages, relecture depuis le disque.
+ * Mode composition : les clips touchés, dans l'ordre, sont assemblés en un seul fichier.
+ */
+public class HistoryActivity extends AppCompatActivity {
+    private static final String TAG = "VicVoixTTS";
+    private static final int PAGE_SIZE = 50;
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+    private static final long[] SILENCES_MS = {0, 250, 500, 1000, 2000};
+    private static final String[] SILENCE_LABELS = {"Aucun silence", "0,25 s", "0,5 s", "1 s", "2 s"};
+    private static final String STATE_COMPOSE_PATHS = "composePaths";
+    private static final String STATE_COMPOSE_ENCODING = "composeEncoding";
+    private static final String STATE_COMPOSE_SILENCE = "composeSilenceMs";
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private EditText etSearch;
+    private TextView tvEmpty;
+    private TextView tvComposeHint;
+    private Button btnCompose;
+    private ArrayAdapter<ClipHistory.Entry> adapter;
+    private TtsService service;
+    private int generation; // recherche courante : les pages d'une recherche précédente sont ignorées
+    private boolean loading;
+    private boolean exhausted;
+
+    // Composition : sélection ordonnée, puis fichiers en attente pendant le sélecteur SAF
+    private boolean composing;
+    private final List<ClipHistory.Entry> selection = new ArrayList<>();
+    private ActivityResultLauncher<Intent> composeLauncher;
+    private ArrayList<String> pendingComposePaths;
+    private String pendingComposeEncoding;
+    private long pendingComposeSilenceMs;
+
+    private final Runnable search = this::reload;
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            service = ((TtsService.LocalBinder) binder).getService();
+            reload();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.history);
+        etSearch = findViewById(R.id.etSearch);
+        tvEmpty = findViewById(R.id.tvHistoryEmpty);
+        tvComposeHint = findViewById(R.id.tvComposeHint);
+        btnCompose = findViewById(R.id.btnCompose);
+        ListView list = findViewById(R.id.lvHistory);
+        if (savedInstanceState != null) {
+            pendingComposePaths = savedInstanceState.getStringArrayList(STATE_COMPOSE_PATHS);
+            pendingComposeEncoding = savedInstanceState.getString(STATE_COMPOSE_ENCODING);
+            pendingComposeSilenceMs = savedInstanceState.getLong(STATE_COMPOSE_SILENCE);
+        }
+        composeLauncher = registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
+            Uri uri = result.getResultCode() == RESULT_OK && result.getData() != null ? result.getData().getData() : null;
+            if (uri != null && pendingComposePaths != null) writeComposition(uri);
+            pendingComposePaths = null;
+        });
+        btnCompose.setOnClickListener(v -> {
+            if (!composing) {
+                setComposing(true);
+            } else if (selection.isEmpty()) {
+                setComposing(false);
+            } else {
+                chooseSilence();
+            }
+        });
+
+        adapter = new ArrayAdapter<ClipHistory.Entry>(this, android.R.layout.simple_list_item_2, android.R.id.text1) {
+            @Override
+            public View getView(int position, View convertView, ViewGroup parent) {
+                View row = super.getView(position, convertView, parent);
+                ClipHistory.Entry e = getItem(position);
+                TextView title = row.findViewById(android.R.id.text1);
+                TextView details = row.findViewById(android.R.id.text2);
+                int order = indexOf(selection, e);
+                title.setText(order >= 0 ? (order + 1) + ". " + e.text : e.text);
+                title.setMaxLines(2);
+                title.setTextColor(getColor(R.color.text_primary));
+                details.setText(String.format(Locale.FRANCE, "%s · %s · %.1f s · %d Ko",
+                        DateUtils.getRelativeTimeSpanString(e.createdAt), e.voiceName,
+                        e.durationMs / 1000.0, e.sizeBytes / 1024));
+                details.setTextColor(getColor(R.color.text_secondary));
+                return row;
+            }
+        };
+        list.setAdapter(adapter);
+        list.setOnItemClickListener((parent, view, position, id) -> {
+            if (composing) {
+                toggleSelection(adapter.getItem(position));
+            } else {
+                replay(adapter.getItem(position));
+            }
+        });
+        list.setOnItemLongClickListener((parent, view, position, id) -> {
+            confirmDelete(adapter.getItem(position));
+            return true;
+        });
+        list.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisible, int visibleCount, int totalCount) {
+                // Page suivante un peu avant la fin de la liste
+                if (totalCount > 0 && firstVisible + visibleCount >= totalCount - PAGE_SIZE / 4) loadMore();
+            }
+        });
+
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+            @Override public void onTextChanged(CharSequence s, int start, int before, int count) {}
+            @Override
+            public void afterTextChanged(Editable s) {
+                handler.removeCallbacks(search);
+                handler.postDelayed(search, SEARCH_DEBOUNCE_MS);
+            }
+        });
+
+        bindService(new Intent(this, TtsService.class), connection, BIND_AUTO_CREATE);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putStringArrayList(STATE_COMPOSE_PATHS, pendingComposePaths);
+        outState.putString(STATE_COMPOSE_ENCODING, pendingComposeEncoding);
+        outState.putLong(STATE_COMPOSE_SILENCE, pendingComposeSilenceMs);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        handler.removeCallbacks(search);
+        unbindService(connection);
+    }
+
+    private void reload() {
+        generation++;
+        loading = false;
+        exhausted = false;
+        adapter.clear();
+        loadMore();
+    }
+
+    private void loadMore() {
+        if (service == null || loading || exhausted) return;
+        loading = true;
+        final int gen = generation;
+        ClipHistory.Entry last = adapter.isEmpty() ? null : adapter.getItem(adapter.getCount() - 1);
+        service.history().page(etSearch.getText().toString(), last, PAGE_SIZE)
+                .whenComplete((entries, error) -> runOnUiThread(() -> {
+                    if (gen != generation || isDestroyed()) return;
+                    loading = false;
+                    List<ClipHistory.Entry> page = entries != null ? entries : Collections.emptyList();
+                    exhausted = page.size() < PAGE_SIZE;
+                    adapter.addAll(page);
+                    tvEmpty.setVisibility(adapter.isEmpty() ? View.VISIBLE : View.GONE);
+                    if (error != null) {
+                        Toast.makeText(this, "Erreur historique: " + error.getMessage(), Toast.LENGTH_LONG).show();
+                    }
+                }));
+    }
+
+    private void replay(ClipHistory.Entry entry) {
+        if (service == null) return;
+        if (!entry.audio.isFile()) {
+            Toast.makeText(this, "Fichier audio introuvable", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        service.playFiles(Collections.singletonList(entry.audio));
+        Toast.makeText(this, "Lecture", Toast.LENGTH_SHORT).show();
+    }
+
+    // --- Composition ---
+
+    private void setComposing(boolean on) {
+        composing = on;
+        selection.clear();
+        tvComposeHint.setVisibility(on ? View.VISIBLE : View.GONE);
+        updateComposeButton();
+        adapter.notifyDataSetChanged();
+    }
+
+    private void toggleSelection(ClipHistory.Entry entry) {
+        int index = indexOf(selection, entry);
+        if (index >= 0) {
+            selection.remove(index);
+        } else if (!selection.isEmpty() && !selection.get(0).audioEncoding.equals(entry.audioEncoding)) {
+            // Assemblage sans réencodage : un seul format par fichier
+            Toast.makeText(this, "Format différent du premier clip", Toast.LENGTH_SHORT).show();
+            return;
+        } else {
+            selection.add(entry);
+        }
+        updateComposeButton();
+        adapter.notifyDataSetChanged();
+    }
+
+    private void updateComposeButton() {
+        btnCompose.setText(!composing ? "Composer" : selection.isEmpty() ? "Annuler" : "Exporter (" + selection.size() + ")");
+    }
+
+    private void chooseSilence() {
+        new AlertDialog.Builder(this)
+                .setTitle("Silence entre les clips")
+                .setItems(SILENCE_LABELS, (d, which) -> launchCompose(SILENCES_MS[which]))
+                .show();
+    }
+
+    private void launchCompose(long silenceMs) {
+        String encoding = selection.get(0).audioEncoding;
+        if (silenceMs > 0 && SynthesisRequest.ENCODING_OGG_OPUS.equals(encoding)) {
+            Toast.makeText(this, "Silences non pris en charge en Ogg Opus", Toast.LENGTH_LONG).show();
+            return;
+        }
+        pendingComposePaths = new ArrayList<>();
+        for (ClipHistory.Entry e : selection) pendingComposePaths.add(e.audio.getAbsolutePath());
+        pendingComposeEncoding = encoding;
+        pendingComposeSilenceMs = silenceMs;
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType(SynthesisRequest.mimeTypeOf(encoding));
+        intent.putExtra(Intent.EXTRA_TITLE, "VicVoix_composition_" + System.currentTimeMillis()
+                + SynthesisRequest.extensionOf(encoding));
+        composeLauncher.launch(intent);
+    }
+
+    private void writeComposition(Uri uri) {
+        if (service == null) {
+            Toast.makeText(this, "Service audio en cours de démarrage, réessayez", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        List<File> clips = new ArrayList<>();
+        for (String path : pendingComposePaths) clips.add(new File(path));
+        WritableByteChannel out;
+        try {
+            ParcelFileDescriptor pfd = getContentResolver().openFileDescriptor(uri, "w");
+            if (pfd == null) throw new IOException("Fichier inaccessible");
+            out = new ParcelFileDescriptor.AutoCloseOutputStream(pfd).getChannel();
+        } catch (IOException e) {
+            Toast.makeText(this, "Erreur écriture fichier: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            Log.e(TAG, "writeComposition open", e);
+            return;
+        }
+        service.engine().compose(clips, pendingComposeEncoding, pendingComposeSilenceMs, out)
+                .whenComplete((bytes, error) -> runOnUiThread(() -> {
+                    if (isDestroyed()) return;
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        Toast.makeText(this, "Erreur composition: " + cause.getMessage(), Toast.LENGTH_LONG).show();
+                        Log.e(TAG, "writeComposition", cause);
+                        return;
+                    }
+                    Toast.makeText(this, "Composition sauvegardée", Toast.LENGTH_LONG).show();
+                    setComposing(false);
+                }));
+    }
+
+    private static int indexOf(List<ClipHistory.Entry> entries, ClipHistory.Entry entry) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).id == entry.id) return i;
+        }
+        return -1;
+    }
+
+    private void confirmDelete(ClipHistory.Entry entry) {
+        new AlertDialog.Builder(this)
+                .setMessage("Supprimer ce clip de l'historique ?")
+                .setPositiveButton("Supprimer", (d, which) -> {
+                    if (service == null) return;
+                    service.history().delete(entry).whenComplete((v, error) -> runOnUiThread(() -> {
+                        if (isDestroyed()) return;
+                        adapter.remove(entry);
+                        int selected = indexOf(selection, entry);
+                        if (selected >= 0) {
+                            selection.remove(selected);
+                            updateComposeButton();
+                        }
+                        tvEmpty.setVisibility(adapter.isEmpty() ? View.VISIBLE : View.GONE);
+                        if (error != null) {
+                            Toast.makeText(this, "Erreur suppression: " + error.getMessage(), Toast.LENGTH_LONG).show();
+                        }
+                    }));
+                })
+                .setNegativeButton("Annuler", null)
+                .show();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.vicvoix;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Client HTTP unique pour tout le processus : les connexions chaudes (TLS négocié,
+ * HTTP/2 établi) survivent aux recréations d'Activity et du service.
+ * Les réponses gzip sont gérées d'office par OkHttp (Accept-Encoding ajouté et décompression).
+ */
+public final class HttpClients {
+    // Lot à 8 requêtes + 3 segments de lecture : tout passe par le même hôte, multiplexé en HTTP/2
+    private static final int MAX_REQUESTS_PER_HOST = 12;
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    /** En dessous, compresser le corps coûte plus qu'il ne rapporte. */
+    static final long GZIP_MIN_BYTES = 1024;
+
+    private static OkHttpClient shared;
+
+    private HttpClients() {}
+
+    public static synchronized OkHttpClient shared() {
+        if (shared == null) {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(32);
+            dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+            shared = new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .connectTimeout(10, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .writeTimeout(15, TimeUnit.SECONDS)
+                    // Maintient la connexion HTTP/2 ouverte entre deux synthèses
+                    .pingInterval(30, TimeUnit.SECONDS)
+                    .addInterceptor(new GzipRequestInterceptor())
+                    .build();
+        }
+        return shared;
+    }
+
+    /**
+     * Client construit au premier {@code get()} puis réutilisé : la création (TLS, chargement
+     * des classes OkHttp) ne pèse pas sur le démarrage de l'app.
+     */
+    static Supplier<OkHttpClient> lazy(Supplier<OkHttpClient> factory) {
+        return new Supplier<OkHttpClient>() {
+            private OkHttpClient client;
+
+            @Override
+            public synchronized OkHttpClient get() {
+                if (client == null) client = factory.get();
+                return client;
+            }
+        };
+    }
+
+    /** Compresse les corps de requête volumineux (textes longs) : Content-Encoding: gzip. */
+    static final class GzipRequestInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            RequestBody body = request.body();
+            if (body == null || request.header("Content-Encoding") != null
+                    || body.contentLength() < GZIP_MIN_BYTES) {
+                return chain.proceed(request);
+            }
+            Buffer compressed = new Buffer();
+            try (BufferedSink gzip = Okio.buffer(new GzipSink(compressed))) {
+                body.writeTo(gzip);
+            }
+            return chain.proceed(request.newBuilder()
+                    .header("Content-Encoding", "gzip")
+                    .method(request.method(), RequestBody.create(compressed.readByteString(), body.contentType()))
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.vicvoix;
+
+import java.util.Arrays;
+
+/**
+ * Fenêtre glissante des dernières durées mesurées pour une phase.
+ * Les percentiles portent sur les {@link #WINDOW} derniers échantillons :
+ * ils suivent l'état actuel du réseau plutôt que tout l'historique.
+ */
+public final class LatencyHistogram {
+    public static final int WINDOW = 1024;
+
+    private final long[] samples = new long[WINDOW]; // ns
+    private int next;
+    private int size;
+    private long count;
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % WINDOW;
+        if (size < WINDOW) size++;
+        count++;
+    }
+
+    /** Nombre total d'échantillons depuis la création (fenêtre comprise ou non). */
+    public synchronized long count() {
+        return count;
+    }
+
+    /** p50, p95, p99 et max de la fenêtre, en ms ; tableau vide si aucun échantillon. */
+    public double[] percentilesMs(double... quantiles) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, size);
+        }
+        if (sorted.length == 0) return new double[0];
+        Arrays.sort(sorted);
+        double[] out = new double[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            // rang le plus proche
+            int rank = (int) Math.ceil(quantiles[i] * sorted.length) - 1;
+            out[i] = sorted[Math.max(0, Math.min(sorted.length - 1, rank))] / 1e6;
+        }
+        return out;
+    }
+}
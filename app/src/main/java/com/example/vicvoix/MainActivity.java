@@ -1,24 +1,27 @@
 package com.example.vicvoix;
 
 import android.Manifest;
+import android.content.ComponentName;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
-import android.media.MediaPlayer;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.Trace;
 import android.provider.MediaStore;
 import android.text.Editable;
-import android.text.InputFilter;
 import android.text.TextWatcher;
-import android.util.Base64;
 import android.util.Log;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.ProgressBar;
@@ -29,95 +32,248 @@ import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-import androidx.core.content.FileProvider;
-
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
+import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
     private static final String TAG = "VicVoixTTS";
     private static final int PERMISSION_REQUEST = 101;
-    private static final int MAX_CHARS = 3000;
+    private static final String STATE_PENDING_EXPORT = "pendingExport";
+    private static final String STATE_PENDING_EXPORT_ENCODING = "pendingExportEncoding";
+    private static final String STATE_ENCODING = "encoding";
+    // Section mesurée par le macrobenchmark (module :baselineprofile)
+    static final String TRACE_GENERATE = "VicVoix.generate";
+    // Ordre du sélecteur de format
+    private static final String[] ENCODINGS = {
+            SynthesisRequest.ENCODING_MP3, SynthesisRequest.ENCODING_LINEAR16, SynthesisRequest.ENCODING_OGG_OPUS};
+    private static final String[] ENCODING_LABELS = {
+            "MP3", "WAV (lecture immédiate)", "Ogg Opus (fichiers légers)"};
 
     // Views
     private EditText etText;
-    private TextView tvCharCounter;
-    private Spinner spinnerVoices;
-    private Button btnLoadVoices, btnGenerate;
+    private TextView tvCharCounter, tvBatchStatus;
+    private Spinner spinnerLanguages, spinnerVoices, spinnerEncoding;
+    private Button btnLoadVoices, btnGenerate, btnBatch, btnHistory, btnDiagnostics;
     private ImageButton btnPlay, btnDownload;
     private ProgressBar progressBar;
     private SeekBar audioProgress;
+    private CheckBox cbSpeculative;
 
-    // Player & networking
-    private MediaPlayer mediaPlayer;
-    private OkHttpClient client = new OkHttpClient();
+    // Synthèse & lecture : hébergées par TtsService, qui survit aux recréations de l'Activity
+    private TtsService service;
+    private TtsEngine engine;
+    private SynthesisSession observedSession;
+    private ChunkedSynthesizer.Listener sessionObserver;
     private Handler handler = new Handler(Looper.getMainLooper());
+    private boolean fullyDrawnReported;
 
     // Data
+    private List<String> languagesList = new ArrayList<>();
     private List<String> voicesList = new ArrayList<>();
+    private String selectedLanguage = SynthesisRequest.DEFAULT_LANGUAGE;
     private String selectedVoice = "fr-FR-Wavenet-D"; // default
-    private final String apiKey = BuildConfig.TTS_API_KEY; // injected from secrets/build config
+    private String selectedEncoding = SynthesisRequest.DEFAULT_ENCODING;
 
-    // Save launcher + temporary bytes
+    // Save launcher + segments à exporter (chemins : survivent à une rotation pendant le sélecteur)
     private ActivityResultLauncher<Intent> saveFileLauncher;
-    private byte[] lastAudioBytes = null;
+    private ArrayList<String> pendingExportPaths = null;
+    private String pendingExportEncoding = SynthesisRequest.DEFAULT_ENCODING;
+
+    // Batch: source -> dossier de sortie -> parallélisme
+    private ActivityResultLauncher<String[]> batchFileLauncher;
+    private ActivityResultLauncher<Uri> batchDirLauncher;
+    private List<BatchScript.Item> pendingBatchItems;
+
+    // Pré-synthèse : relancée quand la saisie marque une pause
+    private static final String PREFS = "vicvoix";
+    private static final String PREF_SPECULATIVE = "speculative";
+    private static final long SPECULATE_DEBOUNCE_MS = 800;
+    private final Runnable speculate = new Runnable() {
+        @Override
+        public void run() {
+            if (engine == null || etText == null || !cbSpeculative.isChecked()) return;
+            String text = etText.getText().toString();
+            // Seules les phrases terminées : la dernière est peut-être encore en cours de frappe
+            engine.speculate(buildRequests(text.substring(0, TextSegmenter.finishedLength(text))));
+        }
+    };
 
     // Runnable for updating SeekBar progress
     private Runnable updateProgress = new Runnable() {
         @Override
         public void run() {
-            if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-                audioProgress.setProgress(mediaPlayer.getCurrentPosition());
+            AudioPlayback player = currentPlayer();
+            if (player != null && (player.isPlaying() || player.isBuffering())) {
+                // La durée totale grandit à mesure que les segments arrivent
+                audioProgress.setMax(player.getDuration());
+                audioProgress.setProgress(player.getCurrentPosition());
                 handler.postDelayed(this, 1000); // Update every second
             }
         }
     };
 
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            service = ((TtsService.LocalBinder) binder).getService();
+            engine = service.engine();
+            onEngineReady();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+            engine = null;
+        }
+    };
+
+    private final AudioPlayback.Listener playerListener = new AudioPlayback.Listener() {
+        @Override
+        public void onStarted() {
+            btnPlay.setImageResource(R.drawable.ic_pause);
+            handler.post(updateProgress); // Start progress update
+            setUiBusy(false); // Ajout pour cacher le spinner une fois prêt à jouer
+        }
+
+        @Override
+        public void onCompleted() {
+            btnPlay.setImageResource(R.drawable.ic_play);
+            audioProgress.setProgress(0);
+            handler.removeCallbacks(updateProgress);
+            setUiBusy(false); // Ajout pour cacher à la fin
+        }
+
+        @Override
+        public void onError(String message) {
+            Toast.makeText(MainActivity.this, message, Toast.LENGTH_LONG).show();
+            setUiBusy(false); // Ajout en cas d'erreur
+        }
+    };
+
+    private final BatchSynthesisQueue.Listener batchListener = new BatchSynthesisQueue.Listener() {
+        @Override
+        public void onProgress(BatchSynthesisQueue.Progress progress) {
+            showBatchStatus(progress, false);
+        }
+
+        @Override
+        public void onFinished(BatchSynthesisQueue.Progress progress) {
+            showBatchStatus(progress, true);
+            if (progress.lastError != null) {
+                Toast.makeText(MainActivity.this, progress.lastError, Toast.LENGTH_LONG).show();
+            }
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.main);
 
+        if (savedInstanceState != null) {
+            pendingExportPaths = savedInstanceState.getStringArrayList(STATE_PENDING_EXPORT);
+            pendingExportEncoding = savedInstanceState.getString(STATE_PENDING_EXPORT_ENCODING, pendingExportEncoding);
+            selectedEncoding = savedInstanceState.getString(STATE_ENCODING, selectedEncoding);
+        }
         initViews();
         setupSaveLauncher();
+        setupBatchLaunchers();
         setupListeners();
-        requestPermissionsIfNeeded();
+        // Après la première image : la demande de permission n'a pas à retarder l'affichage
+        Looper.myQueue().addIdleHandler(() -> {
+            if (!isDestroyed()) requestPermissionsIfNeeded();
+            return false;
+        });
+
+        // Voix par défaut utilisable avant même le chargement du catalogue
+        showCatalog(VoiceCatalog.EMPTY);
+        bindService(new Intent(this, TtsService.class), connection, BIND_AUTO_CREATE);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putStringArrayList(STATE_PENDING_EXPORT, pendingExportPaths);
+        outState.putString(STATE_PENDING_EXPORT_ENCODING, pendingExportEncoding);
+        outState.putString(STATE_ENCODING, selectedEncoding);
+    }
+
+    private void onEngineReady() {
+        service.setPlayerListener(playerListener);
+        service.setBatchListener(batchListener);
+        AudioPlayback player = service.player();
+        if (player != null && (player.isPlaying() || player.isBuffering())) {
+            btnPlay.setImageResource(R.drawable.ic_pause);
+            handler.post(updateProgress);
+        }
+
+        // Synthèse lancée avant une rotation : on se rebranche dessus
+        SynthesisSession session = engine.currentSession();
+        if (session != null) observe(session);
+
+        if (!engine.voiceCatalog().isEmpty()) {
+            showCatalog(engine.voiceCatalog());
+            reportFullyDrawnOnce();
+            return;
+        }
+        // Catalogue local affiché dès qu'il est lu, rafraîchi en arrière-plan s'il a expiré
+        engine.loadVoiceCatalog().thenAccept(catalog -> runOnUiThread(() -> {
+            if (engine == null) return;
+            showCatalog(catalog);
+            reportFullyDrawnOnce();
+            if (engine.isVoiceCatalogStale()) {
+                loadVoices(false);
+            }
+        }));
+    }
+
+    // Écran utilisable : voix affichées (temps jusqu'à l'affichage complet, suivi par le macrobenchmark)
+    private void reportFullyDrawnOnce() {
+        if (fullyDrawnReported) return;
+        fullyDrawnReported = true;
+        reportFullyDrawn();
     }
 
     private void initViews() {
         etText = findViewById(R.id.etText);
         tvCharCounter = findViewById(R.id.tvCharCounter);
+        spinnerLanguages = findViewById(R.id.spinnerLanguages);
         spinnerVoices = findViewById(R.id.spinnerVoices);
+        spinnerEncoding = findViewById(R.id.spinnerEncoding);
         btnLoadVoices = findViewById(R.id.btnLoadVoices);
         btnGenerate = findViewById(R.id.btnGenerate);
+        btnBatch = findViewById(R.id.btnBatch);
+        btnHistory = findViewById(R.id.btnHistory);
+        btnDiagnostics = findViewById(R.id.btnDiagnostics);
+        tvBatchStatus = findViewById(R.id.tvBatchStatus);
         btnPlay = findViewById(R.id.btnPlay);
         btnDownload = findViewById(R.id.btnDownload);
         progressBar = findViewById(R.id.progressBar);
         audioProgress = findViewById(R.id.audioProgress);
+        cbSpeculative = findViewById(R.id.cbSpeculative);
+        cbSpeculative.setChecked(getSharedPreferences(PREFS, MODE_PRIVATE).getBoolean(PREF_SPECULATIVE, false));
 
-        if (etText != null) {
-            etText.setFilters(new InputFilter[]{new InputFilter.LengthFilter(MAX_CHARS)});
-        }
         if (tvCharCounter != null) {
-            tvCharCounter.setText("0 / " + MAX_CHARS);
+            tvCharCounter.setText("0 caractères");
+        }
+        if (spinnerEncoding != null) {
+            ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, ENCODING_LABELS);
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            spinnerEncoding.setAdapter(adapter);
+            spinnerEncoding.setSelection(Math.max(0, Arrays.asList(ENCODINGS).indexOf(selectedEncoding)));
         }
     }
 
@@ -127,25 +283,15 @@ public class MainActivity extends AppCompatActivity {
                 result -> {
                     if (result.getResultCode() == RESULT_OK && result.getData() != null) {
                         Uri uri = result.getData().getData();
-                        if (uri != null && lastAudioBytes != null) {
-                            try (OutputStream os = getContentResolver().openOutputStream(uri)) {
-                                if (os != null) {
-                                    os.write(lastAudioBytes);
-                                    Toast.makeText(this, "MP3 sauvegardé", Toast.LENGTH_LONG).show();
-                                    // Optionnel: jouer après sauvegarde
-                                    playFromBytes(lastAudioBytes);
-                                }
-                            } catch (IOException e) {
-                                Toast.makeText(this, "Erreur écriture fichier: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                                Log.e(TAG, "saveFileLauncher write", e);
-                            } finally {
-                                lastAudioBytes = null;
-                                resetGenerateButton();
-                                setUiBusy(false); // Ajout pour cacher le spinner après save
-                            }
+                        if (uri != null && pendingExportPaths != null) {
+                            List<File> files = new ArrayList<>();
+                            for (String path : pendingExportPaths) files.add(new File(path));
+                            pendingExportPaths = null;
+                            saveFiles(uri, files, pendingExportEncoding);
                         }
                     } else {
                         // L'utilisateur a annulé
+                        pendingExportPaths = null;
                         resetGenerateButton();
                         setUiBusy(false); // Ajout pour cacher le spinner si annulé
                     }
@@ -153,19 +299,143 @@ public class MainActivity extends AppCompatActivity {
         );
     }
 
+    /** Copie les segments en cache vers le document choisi, puis les rejoue depuis ces mêmes fichiers. */
+    private void saveFiles(Uri uri, List<File> files, String encoding) {
+        if (engine == null) {
+            Toast.makeText(this, "Service audio en cours de démarrage, réessayez", Toast.LENGTH_SHORT).show();
+            resetGenerateButton();
+            setUiBusy(false);
+            return;
+        }
+        WritableByteChannel out;
+        try {
+            ParcelFileDescriptor pfd = getContentResolver().openFileDescriptor(uri, "w");
+            if (pfd == null) throw new IOException("Fichier inaccessible");
+            // Fermer le canal ferme aussi le descripteur, ce qui signale la fin au fournisseur
+            out = new ParcelFileDescriptor.AutoCloseOutputStream(pfd).getChannel();
+        } catch (IOException e) {
+            Toast.makeText(this, "Erreur écriture fichier: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            Log.e(TAG, "saveFiles open", e);
+            resetGenerateButton();
+            setUiBusy(false);
+            return;
+        }
+        engine.export(files, encoding, out).whenComplete((bytes, error) -> runOnUiThread(() -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                Toast.makeText(this, "Erreur écriture fichier: " + cause.getMessage(), Toast.LENGTH_LONG).show();
+                Log.e(TAG, "saveFiles write", cause);
+            } else {
+                Toast.makeText(this, "Audio sauvegardé", Toast.LENGTH_LONG).show();
+                // Optionnel: jouer après sauvegarde
+                if (service != null) {
+                    resetPlayerUi();
+                    service.playFiles(files);
+                }
+            }
+            resetGenerateButton();
+            setUiBusy(false); // Ajout pour cacher le spinner après save
+        }));
+    }
+
+    private void setupBatchLaunchers() {
+        batchFileLauncher = registerForActivityResult(new ActivityResultContracts.OpenDocument(), uri -> {
+            if (uri == null) return;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) throw new IOException("Fichier illisible");
+                askBatchDirectory(BatchScript.parse(new InputStreamReader(in, StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                Toast.makeText(this, "Erreur lecture lot: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                Log.e(TAG, "batchFileLauncher", e);
+            }
+        });
+        batchDirLauncher = registerForActivityResult(new ActivityResultContracts.OpenDocumentTree(), treeUri -> {
+            if (treeUri == null || pendingBatchItems == null) return;
+            final String[] choices = {"1", "2", "4", "8"};
+            new AlertDialog.Builder(this)
+                    .setTitle("Requêtes simultanées")
+                    .setItems(choices, (d, which) -> startBatch(treeUri, Integer.parseInt(choices[which])))
+                    .show();
+        });
+    }
+
+    private void chooseBatchSource() {
+        new AlertDialog.Builder(this)
+                .setTitle("Synthèse par lot")
+                .setItems(new String[]{"Lignes du texte saisi", "Fichier texte / CSV"}, (d, which) -> {
+                    if (which == 0) {
+                        String text = etText != null ? etText.getText().toString() : "";
+                        askBatchDirectory(BatchScript.parseLines(Arrays.asList(text.split("\n"))));
+                    } else {
+                        batchFileLauncher.launch(new String[]{"text/*"});
+                    }
+                })
+                .show();
+    }
+
+    private void askBatchDirectory(List<BatchScript.Item> items) {
+        if (items.isEmpty()) {
+            Toast.makeText(this, "Aucune ligne à synthétiser", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        pendingBatchItems = items;
+        Toast.makeText(this, items.size() + " clips : choisissez le dossier de sortie", Toast.LENGTH_SHORT).show();
+        batchDirLauncher.launch(null);
+    }
+
+    private void startBatch(Uri treeUri, int parallelism) {
+        if (service == null) {
+            Toast.makeText(this, "Service audio indisponible, réessayez", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (tvBatchStatus != null) {
+            tvBatchStatus.setVisibility(View.VISIBLE);
+            tvBatchStatus.setText("Lot : 0 / " + pendingBatchItems.size());
+        }
+        service.startBatch(pendingBatchItems, selectedVoice, parallelism, treeUri);
+        pendingBatchItems = null;
+    }
+
+    private void showBatchStatus(BatchSynthesisQueue.Progress p, boolean finished) {
+        if (tvBatchStatus == null) return;
+        tvBatchStatus.setVisibility(View.VISIBLE);
+        tvBatchStatus.setText(String.format(Locale.FRANCE, "%s : %d / %d%s · %.1f clips/min · %.0f car/s",
+                finished ? "Lot terminé" : "Lot", p.done, p.total,
+                p.failed > 0 ? " · " + p.failed + " échec(s)" : "",
+                p.clipsPerMinute(), p.charsPerSecond()));
+    }
+
     private void setupListeners() {
         // Text counter
         if (etText != null) {
             etText.addTextChangedListener(new TextWatcher() {
                 @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
-                @Override public void afterTextChanged(Editable s) {}
+                @Override
+                public void afterTextChanged(Editable s) {
+                    scheduleSpeculation();
+                }
                 @Override
                 public void onTextChanged(CharSequence s, int start, int before, int count) {
                     if (tvCharCounter != null) {
                         int len = s.length();
-                        tvCharCounter.setText(len + " / " + MAX_CHARS);
+                        tvCharCounter.setText(len + " caractères");
+                    }
+                }
+            });
+        }
+
+        // Spinner Languages selection : filtrage local, aucun appel réseau
+        if (spinnerLanguages != null) {
+            spinnerLanguages.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    if (position >= 0 && position < languagesList.size()
+                            && !languagesList.get(position).equals(selectedLanguage)) {
+                        selectedLanguage = languagesList.get(position);
+                        showVoicesFor(selectedLanguage);
                     }
                 }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
             });
         }
 
@@ -176,15 +446,40 @@ public class MainActivity extends AppCompatActivity {
                 public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                     if (position >= 0 && position < voicesList.size()) {
                         selectedVoice = voicesList.get(position);
+                        scheduleSpeculation(); // autre voix : autres empreintes
+                    }
+                }
+                @Override public void onNothingSelected(AdapterView<?> parent) {}
+            });
+        }
+
+        // Format de sortie : WAV pour la latence de lecture, Ogg Opus pour la taille
+        if (spinnerEncoding != null) {
+            spinnerEncoding.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                    if (position >= 0 && position < ENCODINGS.length) {
+                        selectedEncoding = ENCODINGS[position];
+                        scheduleSpeculation();
                     }
                 }
                 @Override public void onNothingSelected(AdapterView<?> parent) {}
             });
         }
 
+        cbSpeculative.setOnCheckedChangeListener((button, checked) -> {
+            getSharedPreferences(PREFS, MODE_PRIVATE).edit().putBoolean(PREF_SPECULATIVE, checked).apply();
+            if (checked) {
+                scheduleSpeculation();
+            } else {
+                handler.removeCallbacks(speculate);
+                if (engine != null) engine.cancelSpeculation();
+            }
+        });
+
         // Buttons
         if (btnLoadVoices != null) {
-            btnLoadVoices.setOnClickListener(v -> loadVoices());
+            btnLoadVoices.setOnClickListener(v -> loadVoices(true));
         }
 
         if (btnGenerate != null) {
@@ -194,15 +489,23 @@ public class MainActivity extends AppCompatActivity {
                     Toast.makeText(this, "Entrez du texte !", Toast.LENGTH_SHORT).show();
                     return;
                 }
-                if (voicesList.isEmpty()) {
-                    Toast.makeText(this, "Chargez les voix d'abord !", Toast.LENGTH_SHORT).show();
-                    return;
-                }
                 // Par défaut: génération + lecture
                 generateTTS(text, false);
             });
         }
 
+        if (btnBatch != null) {
+            btnBatch.setOnClickListener(v -> chooseBatchSource());
+        }
+
+        if (btnHistory != null) {
+            btnHistory.setOnClickListener(v -> startActivity(new Intent(this, HistoryActivity.class)));
+        }
+
+        if (btnDiagnostics != null) {
+            btnDiagnostics.setOnClickListener(v -> startActivity(new Intent(this, DiagnosticsActivity.class)));
+        }
+
         // Play button: Toggle play/pause
         if (btnPlay != null) {
             btnPlay.setOnClickListener(v -> togglePlayPause());
@@ -213,7 +516,6 @@ public class MainActivity extends AppCompatActivity {
             btnDownload.setOnClickListener(v -> {
                 String text = etText != null ? etText.getText().toString().trim() : "";
                 if (text.isEmpty()) { Toast.makeText(this, "Entrez du texte !", Toast.LENGTH_SHORT).show(); return; }
-                if (voicesList.isEmpty()) { Toast.makeText(this, "Chargez les voix d'abord !", Toast.LENGTH_SHORT).show(); return; }
                 generateTTS(text, true);
             });
         }
@@ -223,8 +525,9 @@ public class MainActivity extends AppCompatActivity {
             audioProgress.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
                 @Override
                 public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-                    if (fromUser && mediaPlayer != null) {
-                        mediaPlayer.seekTo(progress);
+                    AudioPlayback player = currentPlayer();
+                    if (fromUser && player != null) {
+                        player.seekTo(progress);
                     }
                 }
 
@@ -235,7 +538,8 @@ public class MainActivity extends AppCompatActivity {
 
                 @Override
                 public void onStopTrackingTouch(SeekBar seekBar) {
-                    if (mediaPlayer != null && mediaPlayer.isPlaying()) {
+                    AudioPlayback player = currentPlayer();
+                    if (player != null && player.isPlaying()) {
                         handler.post(updateProgress);
                     }
                 }
@@ -243,17 +547,22 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    private AudioPlayback currentPlayer() {
+        return service != null ? service.player() : null;
+    }
+
     private void togglePlayPause() {
-        if (mediaPlayer == null) {
+        AudioPlayback player = currentPlayer();
+        if (player == null) {
             Toast.makeText(this, "Générez d'abord l'audio !", Toast.LENGTH_SHORT).show();
             return;
         }
-        if (mediaPlayer.isPlaying()) {
-            mediaPlayer.pause();
+        if (player.isPlaying() || player.isBuffering()) {
+            service.pausePlayback();
             btnPlay.setImageResource(R.drawable.ic_play);
             handler.removeCallbacks(updateProgress); // Stop updating on pause
         } else {
-            mediaPlayer.start();
+            service.resumePlayback();
             btnPlay.setImageResource(R.drawable.ic_pause);
             handler.post(updateProgress); // Start updating progress
         }
@@ -268,178 +577,158 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private void loadVoices() {
-        if (btnLoadVoices != null) {
+    private void loadVoices(boolean userInitiated) {
+        if (engine == null) return;
+        if (userInitiated && btnLoadVoices != null) {
             btnLoadVoices.setEnabled(false);
             btnLoadVoices.setText("Chargement...");
         }
-        String url = "https://texttospeech.googleapis.com/v1/voices?languageCode=fr-FR&key=" + apiKey;
-        Request request = new Request.Builder().url(url).build();
-
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                runOnUiThread(() -> {
-                    Toast.makeText(MainActivity.this, "Erreur réseau pour voix: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    resetLoadButton();
-                });
-            }
-
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                if (!response.isSuccessful()) {
-                    runOnUiThread(() -> Toast.makeText(MainActivity.this, "Erreur API voix: " + response.code(), Toast.LENGTH_LONG).show());
-                    resetLoadButton();
-                    return;
+        engine.refreshVoices().whenComplete((changed, error) -> runOnUiThread(() -> {
+            if (engine == null) return;
+            if (error != null) {
+                // En arrière-plan, le catalogue local reste utilisable : erreur silencieuse
+                if (userInitiated) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    Toast.makeText(MainActivity.this, cause.getMessage(), Toast.LENGTH_LONG).show();
                 }
-                try {
-                    String body = response.body().string();
-                    JSONObject json = new JSONObject(body);
-                    JSONArray voices = json.getJSONArray("voices");
-                    voicesList.clear();
-                    for (int i = 0; i < voices.length(); i++) {
-                        JSONObject voice = voices.getJSONObject(i);
-                        String name = voice.getString("name");
-                        if (name.startsWith("fr-FR-")) {
-                            voicesList.add(name);
-                        }
-                    }
-                    runOnUiThread(() -> {
-                        if (spinnerVoices != null) {
-                            ArrayAdapter<String> adapter = new ArrayAdapter<>(MainActivity.this, android.R.layout.simple_spinner_item, voicesList);
-                            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-                            spinnerVoices.setAdapter(adapter);
-                            spinnerVoices.setSelection(0);
-                        }
-                        if (btnGenerate != null) btnGenerate.setEnabled(true);
-                        Toast.makeText(MainActivity.this, voicesList.size() + " voix fr-FR chargées !", Toast.LENGTH_SHORT).show();
-                        resetLoadButton();
-                    });
-                } catch (Exception e) {
-                    runOnUiThread(() -> Toast.makeText(MainActivity.this, "Erreur parsing voix: " + e.getMessage(), Toast.LENGTH_LONG).show());
-                    resetLoadButton();
+            } else {
+                if (changed) showCatalog(engine.voiceCatalog());
+                if (userInitiated) {
+                    Toast.makeText(MainActivity.this, engine.voiceCatalog().voices.size() + " voix disponibles", Toast.LENGTH_SHORT).show();
                 }
             }
-        });
+            resetLoadButton();
+        }));
     }
 
-    private void generateTTS(String text, boolean wantDownload) {
-        setUiBusy(true);
-        String url = "https://texttospeech.googleapis.com/v1/text:synthesize?key=" + apiKey;
-        try {
-            JSONObject input = new JSONObject();
-            input.put("text", text);
-
-            JSONObject voice = new JSONObject().put("languageCode", "fr-FR").put("name", selectedVoice);
-            JSONObject audioConfig = new JSONObject()
-                    .put("audioEncoding", "MP3")
-                    .put("speakingRate", 1.0f)
-                    .put("pitch", 0.0f);
-
-            JSONObject json = new JSONObject()
-                    .put("input", input)
-                    .put("voice", voice)
-                    .put("audioConfig", audioConfig);
+    private void showCatalog(VoiceCatalog catalog) {
+        languagesList = catalog.isEmpty() ? new ArrayList<>() : catalog.languages();
+        if (!languagesList.contains(selectedLanguage)) languagesList.add(0, selectedLanguage);
+        if (spinnerLanguages != null) {
+            ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, languagesList);
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            spinnerLanguages.setAdapter(adapter);
+            spinnerLanguages.setSelection(languagesList.indexOf(selectedLanguage));
+        }
+        showVoicesFor(selectedLanguage);
+    }
 
-            String jsonBody = json.toString();
-            RequestBody body = RequestBody.create(jsonBody, MediaType.get("application/json; charset=utf-8"));
-            Request request = new Request.Builder().url(url).post(body).build();
+    private void showVoicesFor(String languageCode) {
+        VoiceCatalog catalog = engine != null ? engine.voiceCatalog() : VoiceCatalog.EMPTY;
+        voicesList = new ArrayList<>();
+        for (VoiceCatalog.Voice voice : catalog.voicesFor(languageCode)) {
+            voicesList.add(voice.name);
+        }
+        // Sans catalogue, la voix par défaut reste utilisable
+        if (voicesList.isEmpty() && selectedVoice.startsWith(languageCode)) voicesList.add(selectedVoice);
+        int index = Math.max(0, voicesList.indexOf(selectedVoice));
+        if (!voicesList.isEmpty()) selectedVoice = voicesList.get(index);
+        if (spinnerVoices != null) {
+            ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, voicesList);
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            spinnerVoices.setAdapter(adapter);
+            if (!voicesList.isEmpty()) spinnerVoices.setSelection(index);
+        }
+    }
 
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    runOnUiThread(() -> {
-                        Toast.makeText(MainActivity.this, "Erreur réseau: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                        resetGenerateButton();
-                        setUiBusy(false);
-                    });
-                }
+    private List<SynthesisRequest> buildRequests(String text) {
+        List<SynthesisRequest> requests = new ArrayList<>();
+        for (String segment : TextSegmenter.split(text)) {
+            requests.add(new SynthesisRequest(segment, selectedLanguage, selectedVoice,
+                    selectedEncoding, 1.0f, 0.0f));
+        }
+        return requests;
+    }
 
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    if (!response.isSuccessful()) {
-                        runOnUiThread(() -> {
-                            Toast.makeText(MainActivity.this, "Erreur API: " + response.code(), Toast.LENGTH_LONG).show();
-                            resetGenerateButton();
-                            setUiBusy(false);
-                        });
-                        return;
-                    }
-                    try {
-                        String bodyStr = response.body().string();
-                        JSONObject jsonResponse = new JSONObject(bodyStr);
-                        String audioContent = jsonResponse.getString("audioContent");
-                        byte[] audioBytes = Base64.decode(audioContent, Base64.DEFAULT);
-
-                        if (wantDownload) {
-                            lastAudioBytes = audioBytes;
-                            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
-                            intent.addCategory(Intent.CATEGORY_OPENABLE);
-                            intent.setType("audio/mpeg");
-                            intent.putExtra(Intent.EXTRA_TITLE, "VicVoix_" + System.currentTimeMillis() + ".mp3");
-                            saveFileLauncher.launch(intent);
-                        } else {
-                            runOnUiThread(() -> {
-                                playFromBytes(audioBytes);
-                                resetGenerateButton();
-                                // Déplacé setUiBusy(false) après playFromBytes pour s'assurer qu'il disparaisse une fois l'audio prêt
-                            });
-                            setUiBusy(false); // Appel immédiat pour cacher pendant la préparation async
-                        }
+    private void scheduleSpeculation() {
+        handler.removeCallbacks(speculate);
+        if (cbSpeculative != null && cbSpeculative.isChecked()) handler.postDelayed(speculate, SPECULATE_DEBOUNCE_MS);
+    }
 
-                    } catch (Exception e) {
-                        runOnUiThread(() -> {
-                            Toast.makeText(MainActivity.this, "Erreur réponse: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                            resetGenerateButton();
-                            setUiBusy(false);
-                        });
-                    }
-                }
-            });
+    private void generateTTS(String text, boolean wantDownload) {
+        Trace.beginSection(TRACE_GENERATE);
+        try {
+            startGeneration(text, wantDownload);
+        } finally {
+            Trace.endSection();
+        }
+    }
 
-        } catch (Exception e) {
-            Toast.makeText(this, "Erreur JSON: " + e.getMessage(), Toast.LENGTH_LONG).show();
-            resetGenerateButton();
-            setUiBusy(false);
+    private void startGeneration(String text, boolean wantDownload) {
+        if (service == null) {
+            Toast.makeText(this, "Service audio en cours de démarrage, réessayez", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        List<SynthesisRequest> requests = buildRequests(text);
+        if (requests.isEmpty()) {
+            Toast.makeText(this, "Entrez du texte !", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        SynthesisSession session;
+        if (wantDownload) {
+            session = engine.synthesize(requests, true, null);
+        } else {
+            // Lecture : chaque segment est joué dès son arrivée, sans attendre la fin du document
+            resetPlayerUi();
+            session = service.play(requests);
         }
+        // Après le démarrage : les pré-synthèses en vol ont été rejointes et continuent pour la session
+        handler.removeCallbacks(speculate);
+        engine.cancelSpeculation();
+        // Texte retouché : seules les phrases modifiées repartent vers l'API
+        SegmentDiff diff = session.diff;
+        if (diff.toSynthesize > 0 && diff.toSynthesize < diff.total) {
+            Toast.makeText(this, String.format(Locale.FRANCE, "%d segment(s) à synthétiser sur %d, le reste est en cache",
+                    diff.toSynthesize, diff.total), Toast.LENGTH_SHORT).show();
+        }
+        observe(session);
     }
 
-    private void playFromBytes(byte[] audioBytes) {
-        try {
-            // Write to cache
-            File temp = new File(getCacheDir(), "vicvoix_temp.mp3");
-            try (FileOutputStream fos = new FileOutputStream(temp)) {
-                fos.write(audioBytes);
+    /** Suit une session du moteur ; les segments déjà en cache sont livrés sans appel réseau. */
+    private void observe(SynthesisSession session) {
+        if (observedSession != null) observedSession.detach(sessionObserver);
+        observedSession = session;
+        setUiBusy(!session.isDone());
+        sessionObserver = new ChunkedSynthesizer.Listener() {
+            @Override
+            public void onChunkReady(int index, int total, File audio) {
+                // La lecture est pilotée par le service
             }
 
-            // Release previous
-            releaseMediaPlayer();
-            mediaPlayer = new MediaPlayer();
-            Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", temp);
-            mediaPlayer.setDataSource(this, uri);
-            mediaPlayer.prepareAsync(); // Async prepare
-
-            mediaPlayer.setOnPreparedListener(mp -> {
-                audioProgress.setMax(mp.getDuration());
-                audioProgress.setProgress(0);
-                mp.start();
-                btnPlay.setImageResource(R.drawable.ic_pause);
-                handler.post(updateProgress); // Start progress update
-                setUiBusy(false); // Ajout pour cacher le spinner une fois prêt à jouer
-            });
+            @Override
+            public void onComplete(List<File> chunks) {
+                runOnUiThread(() -> {
+                    if (!session.forExport) {
+                        resetGenerateButton();
+                        return;
+                    }
+                    if (engine != null) engine.dismissSession(session);
+                    launchExport(chunks, session.audioEncoding);
+                });
+            }
 
-            mediaPlayer.setOnCompletionListener(mp -> {
-                btnPlay.setImageResource(R.drawable.ic_play);
-                audioProgress.setProgress(0);
-                handler.removeCallbacks(updateProgress);
-                setUiBusy(false); // Ajout pour cacher à la fin
-            });
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> {
+                    if (engine != null) engine.dismissSession(session);
+                    Toast.makeText(MainActivity.this, message, Toast.LENGTH_LONG).show();
+                    resetGenerateButton();
+                    setUiBusy(false);
+                });
+            }
+        };
+        session.attach(sessionObserver);
+    }
 
-        } catch (IOException e) {
-            Toast.makeText(this, "Erreur lecture: " + e.getMessage(), Toast.LENGTH_LONG).show();
-            Log.e(TAG, "playFromBytes", e);
-            setUiBusy(false); // Ajout en cas d'erreur
-        }
+    private void launchExport(List<File> chunks, String encoding) {
+        pendingExportPaths = new ArrayList<>();
+        for (File f : chunks) pendingExportPaths.add(f.getAbsolutePath());
+        pendingExportEncoding = encoding;
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType(SynthesisRequest.mimeTypeOf(encoding));
+        intent.putExtra(Intent.EXTRA_TITLE, "VicVoix_" + System.currentTimeMillis() + SynthesisRequest.extensionOf(encoding));
+        saveFileLauncher.launch(intent);
     }
 
     private void resetLoadButton() {
@@ -460,16 +749,10 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private void releaseMediaPlayer() {
+    private void resetPlayerUi() {
         handler.removeCallbacks(updateProgress);
-        if (mediaPlayer != null) {
-            if (mediaPlayer.isPlaying()) mediaPlayer.stop();
-            mediaPlayer.release();
-            mediaPlayer = null;
-        }
         btnPlay.setImageResource(R.drawable.ic_play);
         audioProgress.setProgress(0);
-        setUiBusy(false); // Ajout pour cacher le spinner sur release
     }
 
     private void setUiBusy(boolean busy) {
@@ -485,8 +768,17 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        releaseMediaPlayer();
-        client.dispatcher().executorService().shutdown();
+        handler.removeCallbacks(updateProgress);
+        handler.removeCallbacks(speculate);
+        if (observedSession != null) observedSession.detach(sessionObserver);
+        if (service != null) {
+            if (isFinishing()) engine.cancelSpeculation();
+            service.setPlayerListener(null);
+            service.setBatchListener(null);
+            // Rotation : la lecture continue dans le service ; sortie de l'app : on l'arrête
+            if (isFinishing()) service.stopPlayback();
+        }
+        unbindService(connection);
     }
 
     @Override
@@ -0,0 +1,116 @@
+package com.example.vicvoix;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Découpe chaque appel OkHttp en phases (DNS, connexion, TLS, attente serveur, téléchargement)
+ * et les verse dans {@link TtsMetrics}. Une instance par appel : pas de synchronisation.
+ * Une connexion réutilisée ne produit ni DNS ni connect : c'est voulu, les percentiles le montrent.
+ */
+final class MetricsEventListener extends EventListener {
+
+    static final class Factory implements EventListener.Factory {
+        private final TtsMetrics metrics;
+
+        Factory(TtsMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public EventListener create(Call call) {
+            SynthesisRequest req = call.request().tag(SynthesisRequest.class);
+            return new MetricsEventListener(metrics, req != null ? req.voiceName : null);
+        }
+    }
+
+    private final TtsMetrics metrics;
+    private final String voice;
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureStart;
+    private long requestEnd;
+    private long responseHeadersEnd;
+
+    private MetricsEventListener(TtsMetrics metrics, String voice) {
+        this.metrics = metrics;
+        this.voice = voice;
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> addresses) {
+        metrics.record(TtsMetrics.DNS, voice, System.nanoTime() - dnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        metrics.record(TtsMetrics.TLS, voice, System.nanoTime() - secureStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+        metrics.record(TtsMetrics.CONNECT, voice, System.nanoTime() - connectStart);
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        requestEnd = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        requestEnd = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        responseHeadersEnd = System.nanoTime();
+        if (requestEnd > 0) metrics.record(TtsMetrics.SERVER, voice, responseHeadersEnd - requestEnd);
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        if (responseHeadersEnd > 0) metrics.record(TtsMetrics.DOWNLOAD, voice, System.nanoTime() - responseHeadersEnd);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        metrics.record(TtsMetrics.CALL, voice, System.nanoTime() - callStart);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        // Les échecs n'entrent pas dans les percentiles de latence
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.vicvoix;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Synthèse LINEAR16 lue en flux : le premier segment part vers la sortie PCM pendant
+ * son téléchargement (ni fichier à attendre, ni prepare), les suivants sont préchargés
+ * en parallèle puis relus depuis le cache dans l'ordre du texte.
+ * Chaque segment est tout de même mis en cache, pour la relecture et l'export.
+ */
+public final class PcmStreamJob implements ChunkedSynthesizer.Cancellable {
+
+    /** Sortie PCM (ex. AudioTrack) ; appelée sur le thread du job, les écritures peuvent bloquer. */
+    public interface Sink extends WavFormat.PcmSink {
+        /** Dernier segment écrit. */
+        void onEnd();
+    }
+
+    private final ChunkedSynthesizer synthesizer;
+    private final List<SynthesisRequest> requests;
+    private final Sink sink;
+    private final ChunkedSynthesizer.Listener listener;
+    private final ExecutorService feeder = Executors.newSingleThreadExecutor();
+    private final ExecutorService prefetch = Executors.newFixedThreadPool(ChunkedSynthesizer.MAX_IN_FLIGHT - 1);
+    private final List<Future<File>> prefetched = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    PcmStreamJob(ChunkedSynthesizer synthesizer, List<SynthesisRequest> requests, Sink sink,
+                 ChunkedSynthesizer.Listener listener) {
+        this.synthesizer = synthesizer;
+        this.requests = requests;
+        this.sink = sink;
+        this.listener = listener;
+    }
+
+    synchronized void start() {
+        if (cancelled) return;
+        for (int i = 1; i < requests.size(); i++) {
+            SynthesisRequest req = requests.get(i);
+            prefetched.add(prefetch.submit(() -> synthesizer.fetch(req, RequestScheduler.Lane.INTERACTIVE)));
+        }
+        feeder.execute(this::run);
+        feeder.shutdown();
+        prefetch.shutdown();
+    }
+
+    @Override
+    public synchronized void cancel() {
+        cancelled = true;
+        feeder.shutdownNow();
+        prefetch.shutdownNow();
+    }
+
+    private void run() {
+        List<File> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < requests.size() && !cancelled; i++) {
+                WavFormat.Extractor pcm = new WavFormat.Extractor(sink);
+                File audio;
+                if (i == 0) {
+                    audio = synthesizer.fetch(requests.get(0), pcm);
+                } else {
+                    audio = prefetched.get(i - 1).get();
+                    byte[] buffer = BufferPool.shared().acquire();
+                    try (InputStream in = new FileInputStream(audio)) {
+                        int n;
+                        while (!cancelled && (n = in.read(buffer)) != -1) pcm.write(buffer, 0, n);
+                    } finally {
+                        BufferPool.shared().release(buffer);
+                    }
+                }
+                files.add(audio);
+                listener.onChunkReady(i, requests.size(), audio);
+            }
+            if (cancelled) return;
+            sink.onEnd();
+            listener.onComplete(files);
+        } catch (InterruptedException e) {
+            // annulé
+        } catch (ExecutionException e) {
+            fail(e.getCause());
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(Throwable e) {
+        if (cancelled) return;
+        listener.onError(ChunkedSynthesizer.describe(e));
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.vicvoix;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture LINEAR16 par un AudioTrack en mode flux, alimenté directement par le PCM décodé :
+ * ni fichier temporaire, ni FileProvider, ni prepare avant le premier échantillon.
+ * Une fois tout le document reçu, relecture et déplacement repartent des segments en cache.
+ * Les méthodes d'{@link AudioPlayback} s'appellent sur le thread principal ;
+ * {@link #liveSink()} est alimenté par le thread de synthèse.
+ */
+public final class PcmStreamPlayer implements AudioPlayback {
+    private static final String TAG = "VicVoixTTS";
+    private static final int BUFFER_MS = 100;
+
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Feed live;
+    private final Object lock = new Object();
+
+    // Sous lock : partagé avec le thread qui alimente la piste
+    private final List<File> segments = new ArrayList<>();
+    private AudioTrack track;
+    private int sampleRateHz;
+    private int frameSize;
+    private int generation; // incrémenté à chaque relecture : l'ancienne alimentation s'arrête
+    private long framesWritten; // dans la piste courante
+    private long baseFrames; // position de la première trame de la piste dans le document
+    private long documentFrames; // reçues en direct : durée connue
+    private boolean received; // document entier reçu en direct
+    private boolean ended; // toutes les trames écrites dans la piste courante
+    private boolean stopPending; // fin atteinte pendant une pause
+    private boolean completed;
+    private boolean paused;
+    private boolean started;
+    private boolean released;
+
+    public PcmStreamPlayer(Listener listener) {
+        this.listener = listener;
+        this.live = new Feed(0, 0);
+    }
+
+    /** Sortie à passer à {@link TtsEngine#synthesizeStream}. */
+    public PcmStreamJob.Sink liveSink() {
+        return live;
+    }
+
+    /** Segment reçu et mis en cache : sert à la relecture et au déplacement. Thread quelconque. */
+    public void addSegment(File audio) {
+        synchronized (lock) {
+            segments.add(audio);
+        }
+    }
+
+    @Override
+    public boolean isPlaying() {
+        synchronized (lock) {
+            return track != null && !paused && !completed && track.getPlaybackHeadPosition() < framesWritten;
+        }
+    }
+
+    @Override
+    public boolean isBuffering() {
+        synchronized (lock) {
+            return !paused && !completed && !released
+                    && (track == null || !ended && track.getPlaybackHeadPosition() >= framesWritten);
+        }
+    }
+
+    @Override
+    public void pause() {
+        synchronized (lock) {
+            paused = true;
+            if (track != null) track.pause();
+        }
+    }
+
+    @Override
+    public void resume() {
+        boolean replay;
+        synchronized (lock) {
+            paused = false;
+            replay = completed;
+            if (!replay && track != null) {
+                track.play();
+                if (stopPending) {
+                    stopPending = false;
+                    track.stop();
+                }
+            }
+        }
+        if (replay) restartAt(0);
+    }
+
+    @Override
+    public void seekTo(int positionMs) {
+        synchronized (lock) {
+            // Pas de déplacement tant que le document arrive encore
+            if (!received) return;
+        }
+        restartAt(positionMs);
+    }
+
+    @Override
+    public int getDuration() {
+        synchronized (lock) {
+            return sampleRateHz == 0 ? 0 : (int) (documentFrames * 1000 / sampleRateHz);
+        }
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        synchronized (lock) {
+            if (completed || track == null || sampleRateHz == 0) return 0;
+            long head = Math.min(track.getPlaybackHeadPosition(), framesWritten);
+            return (int) ((baseFrames + head) * 1000 / sampleRateHz);
+        }
+    }
+
+    @Override
+    public void release() {
+        synchronized (lock) {
+            released = true;
+            generation++;
+            releaseTrack();
+        }
+        handler.removeCallbacksAndMessages(null);
+    }
+
+    // Relecture depuis les segments en cache, sur un thread dédié
+    private void restartAt(int positionMs) {
+        final Feed feed;
+        final List<File> files;
+        synchronized (lock) {
+            if (released || sampleRateHz == 0) return;
+            files = new ArrayList<>(segments);
+            generation++;
+            releaseTrack();
+            long startFrame = Math.max(0, Math.min((long) positionMs * sampleRateHz / 1000, documentFrames));
+            baseFrames = startFrame;
+            framesWritten = 0;
+            ended = false;
+            stopPending = false;
+            completed = false;
+            feed = new Feed(generation, startFrame * frameSize);
+        }
+        new Thread(() -> {
+            byte[] buffer = BufferPool.shared().acquire();
+            try {
+                for (File f : files) {
+                    WavFormat.Extractor pcm = new WavFormat.Extractor(feed);
+                    try (InputStream in = new FileInputStream(f)) {
+                        int n;
+                        while (feed.isCurrent() && (n = in.read(buffer)) != -1) pcm.write(buffer, 0, n);
+                    }
+                }
+                feed.onEnd();
+            } catch (IOException e) {
+                Log.e(TAG, "PcmStreamPlayer.restartAt", e);
+                handler.post(() -> listener.onError("Erreur lecture: " + e.getMessage()));
+            } finally {
+                BufferPool.shared().release(buffer);
+            }
+        }, "VicVoixPcmReplay").start();
+    }
+
+    private void releaseTrack() {
+        if (track == null) return;
+        try {
+            track.pause();
+            track.flush();
+        } catch (IllegalStateException ignored) {
+            // piste pas encore initialisée
+        }
+        track.release();
+        track = null;
+    }
+
+    private AudioTrack createTrack(int rate, int channels) {
+        int channelMask = channels == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+        int minBuffer = AudioTrack.getMinBufferSize(rate, channelMask, AudioFormat.ENCODING_PCM_16BIT);
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .setSampleRate(rate)
+                        .setChannelMask(channelMask)
+                        .build())
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .setBufferSizeInBytes(Math.max(minBuffer, rate * 2 * channels * BUFFER_MS / 1000));
+        if (Build.VERSION.SDK_INT >= 26) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        AudioTrack t = builder.build();
+        t.setPlaybackPositionUpdateListener(new AudioTrack.OnPlaybackPositionUpdateListener() {
+            @Override
+            public void onMarkerReached(AudioTrack reached) {
+                onTrackDrained(reached);
+            }
+
+            @Override
+            public void onPeriodicNotification(AudioTrack ignored) {
+            }
+        }, handler);
+        return t;
+    }
+
+    // Thread principal
+    private void onTrackDrained(AudioTrack drained) {
+        synchronized (lock) {
+            if (drained != track || completed || !ended) return;
+            completed = true;
+        }
+        listener.onCompleted();
+    }
+
+    /** Alimentation d'une piste : le direct (génération 0) ou une relecture. */
+    private final class Feed implements PcmStreamJob.Sink {
+        private final int gen;
+        private final byte[] carry = new byte[4]; // trame incomplète en attente
+        private int carryLen;
+        private int bytesPerFrame = 2;
+        private long skipBytes;
+
+        Feed(int gen, long skipBytes) {
+            this.gen = gen;
+            this.skipBytes = skipBytes;
+        }
+
+        boolean isCurrent() {
+            synchronized (lock) {
+                return gen == generation && !released;
+            }
+        }
+
+        @Override
+        public void onFormat(int rate, int channels) throws IOException {
+            bytesPerFrame = channels * 2;
+            synchronized (lock) {
+                if (gen != generation || released) return;
+                if (track != null) {
+                    if (rate != sampleRateHz || channels * 2 != frameSize) {
+                        throw new IOException("Format audio différent entre segments");
+                    }
+                    return;
+                }
+                sampleRateHz = rate;
+                frameSize = channels * 2;
+                track = createTrack(rate, channels);
+                if (!paused) track.play();
+            }
+        }
+
+        @Override
+        public void onPcm(byte[] b, int off, int len) throws IOException {
+            if (skipBytes > 0) {
+                int n = (int) Math.min(len, skipBytes);
+                skipBytes -= n;
+                off += n;
+                len -= n;
+            }
+            if (len == 0) return;
+            // AudioTrack n'accepte que des trames entières
+            if (carryLen > 0) {
+                int n = Math.min(bytesPerFrame - carryLen, len);
+                System.arraycopy(b, off, carry, carryLen, n);
+                carryLen += n;
+                off += n;
+                len -= n;
+                if (carryLen < bytesPerFrame) return;
+                carryLen = 0;
+                write(carry, 0, bytesPerFrame);
+            }
+            int whole = len - len % bytesPerFrame;
+            if (whole > 0) write(b, off, whole);
+            carryLen = len - whole;
+            System.arraycopy(b, off + whole, carry, 0, carryLen);
+        }
+
+        private void write(byte[] b, int off, int len) {
+            AudioTrack t;
+            synchronized (lock) {
+                if (gen != generation || released) return;
+                t = track;
+            }
+            // Écriture bloquante hors verrou : pause() et release() restent possibles pendant l'attente
+            while (len > 0) {
+                int n = t.write(b, off, len);
+                if (n <= 0) return; // piste libérée
+                off += n;
+                len -= n;
+                boolean first;
+                synchronized (lock) {
+                    if (gen != generation) return;
+                    framesWritten += n / frameSize;
+                    if (gen == 0) documentFrames += n / frameSize;
+                    first = !started;
+                    started = true;
+                }
+                if (first) handler.post(listener::onStarted);
+            }
+        }
+
+        @Override
+        public void onEnd() {
+            AudioTrack t;
+            boolean drained;
+            synchronized (lock) {
+                if (gen != generation || released) return;
+                ended = true;
+                if (gen == 0) received = true;
+                t = track;
+                if (t == null) {
+                    drained = true;
+                } else {
+                    t.setNotificationMarkerPosition((int) framesWritten);
+                    drained = t.getPlaybackHeadPosition() >= framesWritten;
+                    // En mode flux, stop() joue ce qui reste dans le tampon puis s'arrête ;
+                    // en pause, il attend la reprise pour ne pas perdre la fin
+                    if (paused) {
+                        stopPending = true;
+                    } else {
+                        t.stop();
+                    }
+                }
+            }
+            if (drained) handler.post(() -> onTrackDrained(t));
+        }
+    }
+}
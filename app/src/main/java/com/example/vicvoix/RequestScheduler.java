@@ -0,0 +1,431 @@
+package com.example.vicvoix;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordonnanceur des appels de synthèse, entre l'app et l'API :
+ * <ul>
+ * <li>quotas en seaux à jetons (requêtes/min et caractères/min), avec une part réservée à la lecture ;</li>
+ * <li>trois files par priorité : lecture &gt; téléchargement &gt; arrière-plan (pré-synthèse) ;</li>
+ * <li>concurrence AIMD : +1/limite par succès, divisée par deux sur 429 / 5xx ;</li>
+ * <li>reprise avec backoff exponentiel + jitter ; Retry-After suspend toutes les files.</li>
+ * </ul>
+ * Une reprise qui attendrait plus que ce que sa file tolère échoue tout de suite
+ * plutôt que de consommer du quota pour rien (la lecture a le moteur de l'appareil).
+ */
+public final class RequestScheduler {
+    public enum Lane { INTERACTIVE, DOWNLOAD, BACKGROUND }
+
+    // En dessous des quotas par défaut d'un projet Cloud TTS
+    public static final int DEFAULT_REQUESTS_PER_MINUTE = 600;
+    public static final int DEFAULT_CHARS_PER_MINUTE = 150_000;
+    public static final int MAX_ATTEMPTS = 4;
+    static final int MIN_CONCURRENCY = 1;
+    static final int MAX_CONCURRENCY = 12; // HttpClients : requêtes simultanées par hôte
+    private static final double INITIAL_CONCURRENCY = 4;
+    private static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    // Une seule réduction par rafale d'erreurs : les appels lancés avant la première échouent aussi
+    private static final long DECREASE_INTERVAL_MS = 1000;
+    // Par file (ordre de Lane) : part des jetons laissée aux files prioritaires, attente tolérée avant reprise
+    private static final double[] RESERVE = {0, 0.1, 0.3};
+    private static final long[] MAX_RETRY_WAIT_MS = {3_000, 60_000, 10_000};
+
+    /** Un essai : lance l'appel puis signale son issue, une seule fois, à {@code attempt}. */
+    public interface Task<T> {
+        ChunkedSynthesizer.Cancellable start(Attempt<T> attempt);
+    }
+
+    /** État courant, pour l'écran de diagnostic. */
+    public static final class Stats {
+        public final double concurrency;
+        public final int running;
+        public final int[] queued; // par Lane
+        public final long pausedMs;
+        public final long retries;
+        public final long throttled;
+
+        Stats(double concurrency, int running, int[] queued, long pausedMs, long retries, long throttled) {
+            this.concurrency = concurrency;
+            this.running = running;
+            this.queued = queued;
+            this.pausedMs = pausedMs;
+            this.retries = retries;
+            this.throttled = throttled;
+        }
+    }
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "VicVoixScheduler");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Random random = new Random();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayDeque<Ticket<?>>[] lanes = new ArrayDeque[Lane.values().length];
+    private final TokenBucket requestBucket;
+    private final TokenBucket charBucket;
+    private double concurrency = INITIAL_CONCURRENCY;
+    private int running;
+    private int runningInteractive;
+    private long pausedUntilMs;
+    private long lastDecreaseMs;
+    private long retries;
+    private long throttled;
+    private ScheduledFuture<?> wakeUp;
+    private long wakeUpAtMs;
+
+    public RequestScheduler() {
+        this(DEFAULT_REQUESTS_PER_MINUTE, DEFAULT_CHARS_PER_MINUTE);
+    }
+
+    public RequestScheduler(int requestsPerMinute, int charsPerMinute) {
+        for (int i = 0; i < lanes.length; i++) lanes[i] = new ArrayDeque<>();
+        requestBucket = new TokenBucket(requestsPerMinute);
+        charBucket = new TokenBucket(charsPerMinute);
+    }
+
+    /** Met l'appel en file ; {@link Ticket#future} porte le résultat du dernier essai. */
+    public <T> Ticket<T> submit(Lane lane, int chars, Task<T> task) {
+        Ticket<T> ticket = new Ticket<>(lane, chars, task, true);
+        enqueue(ticket, false);
+        return ticket;
+    }
+
+    /**
+     * Attend son tour (appel synchrone, ex. lecture en flux) ; l'appelant lance l'appel
+     * puis signale son issue. Pas de reprise : l'audio a déjà pu partir vers la sortie.
+     */
+    public <T> Attempt<T> acquire(Lane lane, int chars) throws InterruptedIOException {
+        CompletableFuture<Attempt<T>> admitted = new CompletableFuture<>();
+        Ticket<T> ticket = new Ticket<>(lane, chars, attempt -> {
+            admitted.complete(attempt);
+            return null;
+        }, false);
+        // Annulé en file (arrêt de l'ordonnanceur) : l'appelant est réveillé
+        ticket.future.whenComplete((v, e) -> {
+            if (e != null) admitted.completeExceptionally(e);
+        });
+        enqueue(ticket, false);
+        try {
+            return admitted.get();
+        } catch (InterruptedException e) {
+            ticket.cancel();
+            // Admis juste avant l'interruption : la place est rendue
+            admitted.thenAccept(a -> a.fail(new InterruptedIOException("Synthèse interrompue")));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Synthèse interrompue");
+        } catch (ExecutionException e) {
+            throw new InterruptedIOException("Synthèse annulée");
+        }
+    }
+
+    public synchronized Stats stats() {
+        int[] queued = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) queued[i] = lanes[i].size();
+        return new Stats(concurrency, running, queued, Math.max(0, pausedUntilMs - nowMs()), retries, throttled);
+    }
+
+    public void shutdown() {
+        List<Ticket<?>> dropped = new ArrayList<>();
+        synchronized (this) {
+            for (ArrayDeque<Ticket<?>> lane : lanes) {
+                dropped.addAll(lane);
+                lane.clear();
+            }
+        }
+        for (Ticket<?> t : dropped) t.cancel();
+        timer.shutdownNow();
+    }
+
+    // --- Admission ---
+
+    private void enqueue(Ticket<?> ticket, boolean retry) {
+        synchronized (this) {
+            if (ticket.cancelled) return;
+            // Une reprise repasse devant les nouveaux venus de sa file
+            if (retry) {
+                lanes[ticket.lane.ordinal()].addFirst(ticket);
+            } else {
+                lanes[ticket.lane.ordinal()].addLast(ticket);
+            }
+        }
+        pump();
+    }
+
+    private void pump() {
+        List<Ticket<?>> toStart = new ArrayList<>();
+        synchronized (this) {
+            long now = nowMs();
+            long waitMs = 0;
+            while (true) {
+                if (now < pausedUntilMs) {
+                    waitMs = pausedUntilMs - now;
+                    break;
+                }
+                Ticket<?> next = null;
+                for (ArrayDeque<Ticket<?>> lane : lanes) {
+                    next = lane.peekFirst();
+                    if (next != null) break;
+                }
+                if (next == null) break;
+                // Priorité stricte : les files suivantes ont moins de places et moins de jetons,
+                // elles ne passeraient pas non plus. Les autres files laissent une place à la lecture,
+                // qui en a toujours une même si la limite vient d'être réduite sous des appels de fond.
+                boolean interactive = next.lane == Lane.INTERACTIVE;
+                boolean free = interactive
+                        ? running < (int) concurrency || runningInteractive == 0
+                        : running < Math.max(MIN_CONCURRENCY, (int) concurrency - 1);
+                if (!free) break; // relancé à la fin d'un appel
+                double reserve = RESERVE[next.lane.ordinal()];
+                waitMs = Math.max(requestBucket.msUntil(1, reserve, now),
+                        charBucket.msUntil(next.chars, reserve, now));
+                if (waitMs > 0) {
+                    if (!next.throttled) {
+                        next.throttled = true;
+                        throttled++;
+                    }
+                    break;
+                }
+                lanes[next.lane.ordinal()].pollFirst();
+                requestBucket.take(1, now);
+                charBucket.take(next.chars, now);
+                running++;
+                if (interactive) runningInteractive++;
+                next.runningInteractive = interactive;
+                next.attempts++;
+                toStart.add(next);
+            }
+            if (waitMs > 0) scheduleWakeUp(now, waitMs);
+        }
+        for (Ticket<?> t : toStart) t.startAttempt();
+    }
+
+    // Appelé sous le verrou ; un seul réveil en attente, le plus proche
+    private void scheduleWakeUp(long now, long waitMs) {
+        long at = now + waitMs;
+        if (wakeUp != null && !wakeUp.isDone() && wakeUpAtMs <= at) return;
+        if (wakeUp != null) wakeUp.cancel(false);
+        try {
+            wakeUp = timer.schedule(this::pump, waitMs, TimeUnit.MILLISECONDS);
+            wakeUpAtMs = at;
+        } catch (RejectedExecutionException e) {
+            // arrêté
+        }
+    }
+
+    // --- Issue d'un essai ---
+
+    private void onSuccess(Ticket<?> ticket) {
+        synchronized (this) {
+            running--;
+            if (ticket.runningInteractive) runningInteractive--;
+            ticket.call = null;
+            // Additive increase : +1 place après une "fenêtre" complète sans erreur
+            concurrency = Math.min(MAX_CONCURRENCY, concurrency + 1 / concurrency);
+        }
+        pump();
+    }
+
+    private void onFailure(Ticket<?> ticket, IOException error) {
+        boolean retrying = false;
+        synchronized (this) {
+            running--;
+            if (ticket.runningInteractive) runningInteractive--;
+            ticket.call = null;
+            if (!ticket.cancelled) {
+                long now = nowMs();
+                TtsApiException api = error instanceof TtsApiException ? (TtsApiException) error : null;
+                long retryAfterMs = api != null ? api.retryAfterMs : -1;
+                if (api != null && api.isRetryable()) {
+                    // Multiplicative decrease
+                    if (now - lastDecreaseMs >= DECREASE_INTERVAL_MS) {
+                        concurrency = Math.max(MIN_CONCURRENCY, concurrency / 2);
+                        lastDecreaseMs = now;
+                    }
+                    // Le quota réel est plus bas que prévu (clé partagée, autre appareil) : on repart de zéro
+                    if (api.code == 429) requestBucket.drain(now);
+                    if (retryAfterMs > 0) pausedUntilMs = Math.max(pausedUntilMs, now + retryAfterMs);
+                }
+                boolean transientError = api != null ? api.isRetryable() : !(error instanceof InterruptedIOException);
+                if (ticket.retryable && transientError && ticket.attempts < MAX_ATTEMPTS) {
+                    long delayMs = backoffMs(ticket.attempts, retryAfterMs);
+                    // Attente plus longue que ce que la file tolère : échec immédiat, sans quota gaspillé
+                    if (delayMs <= MAX_RETRY_WAIT_MS[ticket.lane.ordinal()]) {
+                        try {
+                            ticket.retryTimer = timer.schedule(() -> enqueue(ticket, true), delayMs,
+                                    TimeUnit.MILLISECONDS);
+                            retries++;
+                            retrying = true;
+                        } catch (RejectedExecutionException e) {
+                            // arrêté
+                        }
+                    }
+                }
+            }
+        }
+        if (!retrying) ticket.future.completeExceptionally(error);
+        pump();
+    }
+
+    private long backoffMs(int attempt, long retryAfterMs) {
+        if (retryAfterMs > 0) return retryAfterMs;
+        long ceiling = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (attempt - 1));
+        synchronized (random) {
+            // "equal jitter" : entre la moitié et la totalité du plafond
+            return ceiling / 2 + (long) (random.nextDouble() * ceiling / 2);
+        }
+    }
+
+    private static long nowMs() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    /** Demande en file ou en cours ; {@link #cancel} la retire ou coupe l'essai en cours. */
+    public final class Ticket<T> implements ChunkedSynthesizer.Cancellable {
+        public final CompletableFuture<T> future = new CompletableFuture<>();
+        private final int chars;
+        private final Task<T> task;
+        private final boolean retryable;
+        // Champs suivants sous le verrou de l'ordonnanceur
+        private Lane lane;
+        private int attempts;
+        private boolean cancelled;
+        private boolean throttled;
+        private boolean runningInteractive; // file au lancement de l'essai en cours
+        private ChunkedSynthesizer.Cancellable call; // essai en cours
+        private ScheduledFuture<?> retryTimer;
+
+        Ticket(Lane lane, int chars, Task<T> task, boolean retryable) {
+            this.lane = lane;
+            this.chars = chars;
+            this.task = task;
+            this.retryable = retryable;
+        }
+
+        /** Passe dans une file plus prioritaire (ex. la lecture rejoint une pré-synthèse). */
+        public void promote(Lane to) {
+            synchronized (RequestScheduler.this) {
+                if (to.ordinal() >= lane.ordinal()) return;
+                boolean queued = lanes[lane.ordinal()].remove(this);
+                lane = to;
+                if (queued) lanes[to.ordinal()].addLast(this);
+            }
+            pump();
+        }
+
+        @Override
+        public void cancel() {
+            ChunkedSynthesizer.Cancellable running;
+            synchronized (RequestScheduler.this) {
+                if (cancelled || future.isDone()) return;
+                cancelled = true;
+                lanes[lane.ordinal()].remove(this);
+                if (retryTimer != null) retryTimer.cancel(false);
+                running = call;
+            }
+            // Essai en cours : son échec libère la place et termine le futur
+            if (running != null) {
+                running.cancel();
+            } else {
+                future.completeExceptionally(new InterruptedIOException("Synthèse annulée"));
+            }
+        }
+
+        private void startAttempt() {
+            Attempt<T> attempt = new Attempt<>(this);
+            ChunkedSynthesizer.Cancellable started;
+            try {
+                started = task.start(attempt);
+            } catch (RuntimeException e) {
+                attempt.fail(new IOException(e));
+                return;
+            }
+            boolean cancelNow;
+            synchronized (RequestScheduler.this) {
+                if (!attempt.done) call = started;
+                cancelNow = cancelled;
+            }
+            if (cancelNow && started != null) started.cancel();
+        }
+    }
+
+    /** Un essai admis : exactement une issue, succès ou échec. */
+    public final class Attempt<T> {
+        private final Ticket<T> ticket;
+        private boolean done;
+
+        Attempt(Ticket<T> ticket) {
+            this.ticket = ticket;
+        }
+
+        public void succeed(T value) {
+            if (!finish()) return;
+            onSuccess(ticket);
+            ticket.future.complete(value);
+        }
+
+        public void fail(IOException error) {
+            if (!finish()) return;
+            onFailure(ticket, error);
+        }
+
+        private boolean finish() {
+            synchronized (RequestScheduler.this) {
+                if (done) return false;
+                done = true;
+                return true;
+            }
+        }
+    }
+
+    /** Seau à jetons rempli en continu, plein au départ (une minute de quota). */
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double perMs;
+        private double tokens;
+        private long updatedMs;
+
+        TokenBucket(int perMinute) {
+            capacity = perMinute;
+            perMs = perMinute / 60_000.0;
+            tokens = capacity;
+            updatedMs = nowMs();
+        }
+
+        /** 0 si {@code amount} peut être pris en laissant {@code reserve} (fraction) de la capacité. */
+        long msUntil(double amount, double reserve, long now) {
+            refill(now);
+            // Une demande plus grosse que ce qui est accessible passera quand même, seau plein
+            double missing = Math.min(amount, capacity * (1 - reserve)) + capacity * reserve - tokens;
+            return missing <= 0 ? 0 : (long) Math.ceil(missing / perMs);
+        }
+
+        void take(double amount, long now) {
+            refill(now);
+            tokens -= Math.min(amount, capacity);
+        }
+
+        void drain(long now) {
+            refill(now);
+            tokens = Math.min(tokens, 0);
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - updatedMs) * perMs);
+            updatedMs = now;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.vicvoix;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Document comparé à la synthèse précédente, segment par segment.
+ * L'empreinte d'un segment est sa {@link SynthesisRequest#cacheKey()} (texte, voix, encodage,
+ * débit, hauteur) : seuls les segments absents du cache repartent vers l'API.
+ */
+public final class SegmentDiff {
+    public final int total;
+    /** Segments absents du document précédent (ajoutés ou modifiés). */
+    public final int changed;
+    /** Segments sans audio en cache : modifiés, ou évincés depuis. */
+    public final int toSynthesize;
+
+    private SegmentDiff(int total, int changed, int toSynthesize) {
+        this.total = total;
+        this.changed = changed;
+        this.toSynthesize = toSynthesize;
+    }
+
+    static SegmentDiff compute(List<String> previousKeys, List<SynthesisRequest> requests, AudioCache cache) {
+        // Multiensemble : une phrase répétée n'est comptée réutilisée qu'autant de fois qu'avant
+        Map<String, Integer> previous = new HashMap<>();
+        for (String key : previousKeys) {
+            Integer n = previous.get(key);
+            previous.put(key, n == null ? 1 : n + 1);
+        }
+        int changed = 0;
+        int toSynthesize = 0;
+        for (SynthesisRequest req : requests) {
+            String key = req.cacheKey();
+            Integer n = previous.get(key);
+            if (n == null) {
+                changed++;
+            } else if (n == 1) {
+                previous.remove(key);
+            } else {
+                previous.put(key, n - 1);
+            }
+            if (!cache.contains(key)) toSynthesize++;
+        }
+        return new SegmentDiff(requests.size(), changed, toSynthesize);
+    }
+}
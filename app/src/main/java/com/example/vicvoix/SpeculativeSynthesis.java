@@ -0,0 +1,95 @@
+package com.example.vicvoix;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pré-synthèse pendant la saisie : les phrases terminées partent en cache une par une,
+ * en arrière-plan, pour que « Générer » trouve l'audio prêt (ou un appel déjà en vol à rejoindre).
+ * Chaque mise à jour remplace la liste voulue : ce qui n'y figure plus (texte retouché,
+ * autre voix) est annulé.
+ */
+final class SpeculativeSynthesis {
+    // Basse priorité : un seul appel à la fois, pour laisser la place aux synthèses demandées
+    private static final int MAX_IN_FLIGHT = 1;
+
+    private final ChunkedSynthesizer synthesizer;
+    private final List<SynthesisRequest> queue = new ArrayList<>();
+    private final Map<String, ChunkedSynthesizer.Prefetch> running = new HashMap<>(); // par cacheKey
+    private int generation; // incrémenté à chaque update()
+    private int starting; // places réservées par pump() hors verrou
+
+    SpeculativeSynthesis(ChunkedSynthesizer synthesizer) {
+        this.synthesizer = synthesizer;
+    }
+
+    void update(List<SynthesisRequest> wanted) {
+        List<ChunkedSynthesizer.Prefetch> stale = new ArrayList<>();
+        synchronized (this) {
+            generation++;
+            Set<String> keys = new HashSet<>();
+            for (SynthesisRequest req : wanted) keys.add(req.cacheKey());
+            Iterator<Map.Entry<String, ChunkedSynthesizer.Prefetch>> it = running.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, ChunkedSynthesizer.Prefetch> e = it.next();
+                if (!keys.contains(e.getKey())) {
+                    stale.add(e.getValue());
+                    it.remove();
+                }
+            }
+            queue.clear();
+            Set<String> queued = new HashSet<>();
+            for (SynthesisRequest req : wanted) {
+                String key = req.cacheKey();
+                if (!running.containsKey(key) && queued.add(key)) queue.add(req);
+            }
+        }
+        // Hors verrou : release() prend celui des appels en vol
+        for (ChunkedSynthesizer.Prefetch p : stale) p.cancel();
+        pump();
+    }
+
+    void cancelAll() {
+        update(new ArrayList<>());
+    }
+
+    private void pump() {
+        while (true) {
+            SynthesisRequest req;
+            int gen;
+            synchronized (this) {
+                if (running.size() + starting >= MAX_IN_FLIGHT || queue.isEmpty()) return;
+                req = queue.remove(0);
+                gen = generation;
+                starting++;
+            }
+            ChunkedSynthesizer.Prefetch p = synthesizer.prefetch(req);
+            String key = req.cacheKey();
+            boolean keep;
+            synchronized (this) {
+                starting--;
+                // Déjà en cache, ou liste remplacée entre-temps : rien à suivre
+                keep = !p.future.isDone() && gen == generation && !running.containsKey(key);
+                if (keep) running.put(key, p);
+            }
+            if (!keep) {
+                p.cancel();
+                continue;
+            }
+            // Succès ou échec : pré-synthèse au mieux, on passe au suivant
+            p.future.whenComplete((audio, error) -> onDone(key, p));
+        }
+    }
+
+    private void onDone(String key, ChunkedSynthesizer.Prefetch p) {
+        synchronized (this) {
+            if (running.get(key) == p) running.remove(key);
+        }
+        pump();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.vicvoix;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Paramètres d'un appel text:synthesize.
+ * Le JSON produit est normalisé (ordre des clés fixe, espaces du texte compactés)
+ * pour que deux demandes identiques donnent toujours la même clé de cache.
+ */
+public final class SynthesisRequest {
+    public static final String DEFAULT_LANGUAGE = "fr-FR";
+    public static final String ENCODING_MP3 = "MP3";
+    /** WAV (PCM 16 bits) : jouable dès les premiers octets, sans décodage. */
+    public static final String ENCODING_LINEAR16 = "LINEAR16";
+    /** Ogg Opus : le plus compact, pour les téléchargements. */
+    public static final String ENCODING_OGG_OPUS = "OGG_OPUS";
+    public static final String DEFAULT_ENCODING = ENCODING_MP3;
+
+    public final String text;
+    public final String languageCode;
+    public final String voiceName;
+    public final String audioEncoding;
+    public final float speakingRate;
+    public final float pitch;
+
+    private String json;
+    private String cacheKey;
+
+    public SynthesisRequest(String text, String languageCode, String voiceName,
+                            String audioEncoding, float speakingRate, float pitch) {
+        this.text = normalizeText(text);
+        this.languageCode = languageCode;
+        this.voiceName = voiceName;
+        this.audioEncoding = audioEncoding;
+        this.speakingRate = speakingRate;
+        this.pitch = pitch;
+    }
+
+    public SynthesisRequest(String text, String voiceName) {
+        this(text, languageOf(voiceName), voiceName, DEFAULT_ENCODING, 1.0f, 0.0f);
+    }
+
+    /** "fr-FR-Wavenet-D" -> "fr-FR" (convention de nommage des voix Google). */
+    public static String languageOf(String voiceName) {
+        int first = voiceName.indexOf('-');
+        int second = first < 0 ? -1 : voiceName.indexOf('-', first + 1);
+        return second < 0 ? DEFAULT_LANGUAGE : voiceName.substring(0, second);
+    }
+
+    /** Type MIME du fichier exporté pour un audioEncoding donné. */
+    public static String mimeTypeOf(String encoding) {
+        if (ENCODING_LINEAR16.equals(encoding)) return "audio/wav";
+        if (ENCODING_OGG_OPUS.equals(encoding)) return "audio/ogg";
+        return "audio/mpeg";
+    }
+
+    public static String extensionOf(String encoding) {
+        if (ENCODING_LINEAR16.equals(encoding)) return ".wav";
+        if (ENCODING_OGG_OPUS.equals(encoding)) return ".ogg";
+        return ".mp3";
+    }
+
+    static String normalizeText(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ");
+    }
+
+    /** Corps JSON envoyé à l'API (calculé une seule fois). */
+    public String toJson() {
+        if (json == null) {
+            try {
+                StringWriter out = new StringWriter(text.length() + 160);
+                JsonWriter w = new JsonWriter(out);
+                w.beginObject();
+                w.name("input").beginObject().name("text").value(text).endObject();
+                w.name("voice").beginObject()
+                        .name("languageCode").value(languageCode)
+                        .name("name").value(voiceName)
+                        .endObject();
+                w.name("audioConfig").beginObject()
+                        .name("audioEncoding").value(audioEncoding)
+                        .name("speakingRate").value(speakingRate)
+                        .name("pitch").value(pitch)
+                        .endObject();
+                w.endObject();
+                w.close();
+                json = out.toString();
+            } catch (IOException e) {
+                // StringWriter ne lève jamais d'IOException
+                throw new IllegalStateException(e);
+            }
+        }
+        return json;
+    }
+
+    /** SHA-256 hexadécimal du JSON normalisé. */
+    public String cacheKey() {
+        if (cacheKey == null) {
+            cacheKey = sha256Hex(toJson());
+        }
+        return cacheKey;
+    }
+
+    static String sha256Hex(String value) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.vicvoix;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Choisit, segment par segment, entre l'API cloud et le moteur TTS de l'appareil
+ * pour qu'une lecture démarre toujours dans le budget de latence, y compris hors ligne.
+ * La latence cloud est prédite par une régression (fixe + par caractère) sur les appels récents.
+ * Ne concerne que la lecture : export et lots restent en cloud (format et voix exacts).
+ */
+public final class SynthesisRouter {
+    public static final long DEFAULT_BUDGET_MS = 1500;
+    /** Budget 0 : cloud uniquement, comme avant le routage. */
+    public static final long CLOUD_ONLY = 0;
+    /** Au-delà, un segment hors budget lance les deux moteurs plutôt que le local seul. */
+    static final int RACE_MIN_CHARS = 200;
+    // Poids des anciens appels à chaque nouvel échantillon
+    private static final double DECAY = 0.8;
+
+    public enum Route { CLOUD, LOCAL, RACE }
+
+    /** Moteur local (android.speech.tts) ; résultat en fichier WAV. */
+    public interface LocalSynthesizer {
+        boolean isAvailable(String languageCode);
+        CompletableFuture<File> synthesize(SynthesisRequest request);
+        /** Fichier de {@link #synthesize} devenu inutile (lu ou abandonné) ; les autres fichiers sont ignorés. */
+        void release(File audio);
+    }
+
+    private final TtsMetrics metrics;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "VicVoixRouter");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile LocalSynthesizer local;
+    private volatile BooleanSupplier online = () -> true;
+    private volatile long budgetMs = DEFAULT_BUDGET_MS;
+    // Sommes pondérées de la régression latence = a + b * caractères
+    private double sw;
+    private double sx;
+    private double sy;
+    private double sxx;
+    private double sxy;
+
+    public SynthesisRouter(TtsMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setLocal(LocalSynthesizer local, BooleanSupplier online) {
+        this.local = local;
+        this.online = online;
+    }
+
+    public void setBudgetMs(long budgetMs) {
+        this.budgetMs = budgetMs;
+    }
+
+    public long budgetMs() {
+        return budgetMs;
+    }
+
+    public boolean isEnabled() {
+        return local != null && budgetMs != CLOUD_ONLY;
+    }
+
+    /** Durée d'un appel cloud réussi (hors lecture en flux, freinée par le lecteur). */
+    public synchronized void recordCloud(int chars, long nanos) {
+        sw = sw * DECAY + 1;
+        sx = sx * DECAY + chars;
+        sy = sy * DECAY + nanos / 1e6;
+        sxx = sxx * DECAY + (double) chars * chars;
+        sxy = sxy * DECAY + chars * (nanos / 1e6);
+    }
+
+    /** Latence cloud prévue en ms, -1 sans historique. */
+    public synchronized double predictCloudMs(int chars) {
+        if (sw < 1e-3) return -1;
+        double meanX = sx / sw;
+        double meanY = sy / sw;
+        double varX = sxx / sw - meanX * meanX;
+        // Segments tous de même longueur : la moyenne suffit
+        double slope = varX < 1 ? 0 : Math.max(0, (sxy / sw - meanX * meanY) / varX);
+        return Math.max(0, meanY + slope * (chars - meanX));
+    }
+
+    public Route decide(SynthesisRequest req) {
+        LocalSynthesizer l = local;
+        if (!isEnabled() || !l.isAvailable(req.languageCode)) return Route.CLOUD;
+        if (!online.getAsBoolean()) return Route.LOCAL;
+        double predicted = predictCloudMs(req.text.length());
+        // Sans historique ou dans le budget : cloud, avec repli local à l'échéance
+        if (predicted < 0 || predicted <= budgetMs) return Route.CLOUD;
+        return req.text.length() >= RACE_MIN_CHARS ? Route.RACE : Route.LOCAL;
+    }
+
+    /**
+     * Audio d'un segment de lecture selon {@link #decide}. {@code cloud} n'est appelé
+     * (de façon synchrone) que si la route passe par le cloud.
+     */
+    public CompletableFuture<File> route(SynthesisRequest req, Supplier<CompletableFuture<File>> cloud) {
+        Route route = decide(req);
+        if (route == Route.LOCAL) return local(req);
+        if (!isEnabled()) return cloud.get();
+
+        FirstSuccess race = new FirstSuccess();
+        race.add();
+        CompletableFuture<File> cloudAudio = cloud.get();
+        Runnable startLocal = () -> {
+            if (race.addLocalOnce()) local(req).whenComplete((audio, error) -> {
+                // Arrivé après le cloud : jamais lu
+                if (!race.onDone(audio, error, false) && audio != null) releaseLocal(audio);
+            });
+        };
+        cloudAudio.whenComplete((audio, error) -> {
+            if (error != null) startLocal.run(); // échec cloud : repli local
+            race.onDone(audio, error, true);
+        });
+        if (route == Route.RACE) {
+            startLocal.run();
+        } else {
+            ScheduledFuture<?> deadline = timer.schedule(startLocal, budgetMs, TimeUnit.MILLISECONDS);
+            race.result.whenComplete((audio, error) -> deadline.cancel(false));
+        }
+        return race.result;
+    }
+
+    private CompletableFuture<File> local(SynthesisRequest req) {
+        LocalSynthesizer l = local;
+        if (l == null || !l.isAvailable(req.languageCode)) {
+            CompletableFuture<File> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Synthèse locale indisponible pour " + req.languageCode));
+            return failed;
+        }
+        long start = System.nanoTime();
+        return l.synthesize(req).whenComplete((audio, error) -> {
+            if (error == null) metrics.record(TtsMetrics.LOCAL, req.languageCode, System.nanoTime() - start);
+        });
+    }
+
+    /** Rend au moteur local un fichier qu'il a produit ; sans effet sur l'audio cloud. */
+    public void releaseLocal(File audio) {
+        LocalSynthesizer l = local;
+        if (l != null) l.release(audio);
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /** Premier succès parmi cloud et local ; en cas d'échec des deux, l'erreur cloud (plus parlante). */
+    private static final class FirstSuccess {
+        final CompletableFuture<File> result = new CompletableFuture<>();
+        private int pending;
+        private boolean localStarted;
+        private Throwable cloudError;
+        private Throwable localError;
+
+        synchronized void add() {
+            pending++;
+        }
+
+        synchronized boolean addLocalOnce() {
+            if (localStarted || result.isDone()) return false;
+            localStarted = true;
+            pending++;
+            return true;
+        }
+
+        /** @return vrai si {@code audio} devient le résultat */
+        boolean onDone(File audio, Throwable error, boolean fromCloud) {
+            Throwable failure;
+            synchronized (this) {
+                pending--;
+                if (error == null) {
+                    failure = null;
+                } else {
+                    if (fromCloud) {
+                        cloudError = error;
+                    } else {
+                        localError = error;
+                    }
+                    if (pending > 0) return false;
+                    failure = cloudError != null ? cloudError : localError;
+                }
+            }
+            if (failure == null) return result.complete(audio);
+            result.completeExceptionally(failure);
+            return false;
+        }
+    }
+}
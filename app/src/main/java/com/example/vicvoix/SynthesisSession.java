@@ -0,0 +1,106 @@
+package com.example.vicvoix;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Une synthèse en cours ou terminée, indépendante de toute Activity.
+ * L'état (segments reçus, résultat, erreur) est conservé : un observateur qui
+ * s'attache après une rotation reçoit d'abord tout ce qu'il a manqué.
+ */
+public final class SynthesisSession implements ChunkedSynthesizer.Listener {
+    public final boolean forExport;
+    public final String audioEncoding;
+    /** Segments réellement à synthétiser par rapport au document précédent. */
+    public final SegmentDiff diff;
+    private final ChunkedSynthesizer.Listener primary; // ex. lecture côté service, peut être null
+    private final Runnable onFinished;
+    private final List<File> chunks = new ArrayList<>();
+    private ChunkedSynthesizer.Listener observer;
+    private ChunkedSynthesizer.Cancellable job;
+    private int total;
+    private List<File> result;
+    private String error;
+    private boolean cancelled;
+
+    SynthesisSession(boolean forExport, String audioEncoding, SegmentDiff diff,
+                     ChunkedSynthesizer.Listener primary, Runnable onFinished) {
+        this.forExport = forExport;
+        this.audioEncoding = audioEncoding;
+        this.diff = diff;
+        this.primary = primary;
+        this.onFinished = onFinished;
+    }
+
+    // Les appels à Job.cancel() se font hors du verrou de la session :
+    // le Job nous rappelle sous son propre verrou.
+    void setJob(ChunkedSynthesizer.Cancellable newJob) {
+        boolean cancelNow;
+        synchronized (this) {
+            job = newJob;
+            cancelNow = cancelled;
+        }
+        if (cancelNow) newJob.cancel();
+    }
+
+    /** Attache un observateur (UI) et lui rejoue l'état courant. */
+    public synchronized void attach(ChunkedSynthesizer.Listener newObserver) {
+        observer = newObserver;
+        for (int i = 0; i < chunks.size(); i++) {
+            newObserver.onChunkReady(i, total, chunks.get(i));
+        }
+        if (result != null) newObserver.onComplete(result);
+        if (error != null) newObserver.onError(error);
+    }
+
+    public synchronized void detach(ChunkedSynthesizer.Listener oldObserver) {
+        if (observer == oldObserver) observer = null;
+    }
+
+    public synchronized boolean isDone() {
+        return result != null || error != null || cancelled;
+    }
+
+    public void cancel() {
+        ChunkedSynthesizer.Cancellable toCancel;
+        boolean finishedNow;
+        synchronized (this) {
+            finishedNow = !isDone();
+            cancelled = true;
+            toCancel = job;
+        }
+        if (toCancel != null) toCancel.cancel();
+        if (finishedNow) onFinished.run();
+    }
+
+    @Override
+    public synchronized void onChunkReady(int index, int total, File audio) {
+        chunks.add(audio);
+        this.total = total;
+        if (primary != null) primary.onChunkReady(index, total, audio);
+        if (observer != null) observer.onChunkReady(index, total, audio);
+    }
+
+    @Override
+    public void onComplete(List<File> files) {
+        synchronized (this) {
+            if (cancelled) return;
+            result = files;
+            if (primary != null) primary.onComplete(files);
+            if (observer != null) observer.onComplete(files);
+        }
+        onFinished.run();
+    }
+
+    @Override
+    public void onError(String message) {
+        synchronized (this) {
+            if (cancelled) return;
+            error = message;
+            if (primary != null) primary.onError(message);
+            if (observer != null) observer.onError(message);
+        }
+        onFinished.run();
+    }
+}
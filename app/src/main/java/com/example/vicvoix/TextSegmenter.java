@@ -0,0 +1,148 @@
+package com.example.vicvoix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Découpe un texte en segments synthétisables séparément.
+ * Un segment = une phrase (ou une ligne) ; les phrases trop longues sont
+ * redécoupées aux virgules / points-virgules, puis aux espaces.
+ * Le découpage est local : modifier une phrase ne déplace pas les frontières des autres.
+ */
+public final class TextSegmenter {
+    // L'API limite l'entrée à 5000 octets ; marge pour les caractères accentués (2 octets en UTF-8)
+    public static final int MAX_SEGMENT_CHARS = 1500;
+
+    private TextSegmenter() {}
+
+    public static List<String> split(String text) {
+        return split(text, MAX_SEGMENT_CHARS);
+    }
+
+    static List<String> split(String text, int maxChars) {
+        List<String> segments = new ArrayList<>();
+        if (text == null) return segments;
+        int start = 0;
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            int end = -1;
+            if (c == '\n') {
+                end = i;
+            } else if (isSentenceEnd(c)) {
+                int j = i + 1;
+                while (j < len && isSentenceEnd(text.charAt(j))) j++; // "?!", "..."
+                j = skipClosing(text, j);                               // guillemets, parenthèses
+                if (j == len || Character.isWhitespace(text.charAt(j))) {
+                    end = j;
+                    i = j - 1;
+                }
+            }
+            if (end >= 0) {
+                addSentence(segments, text.substring(start, end), maxChars);
+                start = end;
+            }
+        }
+        if (start < len) addSentence(segments, text.substring(start), maxChars);
+        return segments;
+    }
+
+    /**
+     * Longueur du début de {@code text} fait de phrases terminées (suivies d'un blanc ou d'un
+     * retour à la ligne). Le découpage étant local, {@code split(text.substring(0, n))} donne
+     * exactement les premiers segments du texte complet : de quoi pré-synthétiser pendant la saisie.
+     */
+    public static int finishedLength(String text) {
+        int finished = 0;
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                finished = i;
+            } else if (isSentenceEnd(c)) {
+                int j = i + 1;
+                while (j < len && isSentenceEnd(text.charAt(j))) j++;
+                j = skipClosing(text, j);
+                // En fin de texte, la phrase est peut-être encore en cours ("Dr." -> "Dr. Martin")
+                if (j < len && Character.isWhitespace(text.charAt(j))) {
+                    finished = j;
+                    i = j - 1;
+                }
+            }
+        }
+        return finished;
+    }
+
+    private static void addSentence(List<String> out, String sentence, int maxChars) {
+        String s = sentence.trim();
+        if (s.isEmpty()) return;
+        if (s.length() <= maxChars) {
+            out.add(s);
+            return;
+        }
+        // Phrase trop longue : regroupe les propositions jusqu'à maxChars
+        StringBuilder current = new StringBuilder();
+        for (String clause : splitClauses(s)) {
+            if (current.length() > 0 && current.length() + 1 + clause.length() > maxChars) {
+                out.add(current.toString());
+                current.setLength(0);
+            }
+            if (clause.length() > maxChars) {
+                splitOnSpaces(out, clause, maxChars);
+                continue;
+            }
+            if (current.length() > 0) current.append(' ');
+            current.append(clause);
+        }
+        if (current.length() > 0) out.add(current.toString());
+    }
+
+    private static List<String> splitClauses(String s) {
+        List<String> clauses = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c == ',' || c == ';' || c == ':') && i + 1 < s.length() && Character.isWhitespace(s.charAt(i + 1))) {
+                clauses.add(s.substring(start, i + 1).trim());
+                start = i + 1;
+            }
+        }
+        String tail = s.substring(start).trim();
+        if (!tail.isEmpty()) clauses.add(tail);
+        return clauses;
+    }
+
+    private static void splitOnSpaces(List<String> out, String s, int maxChars) {
+        int start = 0;
+        while (s.length() - start > maxChars) {
+            int cut = s.lastIndexOf(' ', start + maxChars);
+            if (cut <= start) cut = start + maxChars; // mot plus long que maxChars : coupe franche
+            out.add(s.substring(start, cut).trim());
+            start = cut;
+        }
+        String tail = s.substring(start).trim();
+        if (!tail.isEmpty()) out.add(tail);
+    }
+
+    // Accepte l'espace typographique français avant le guillemet fermant : « Oui ! »
+    private static int skipClosing(String text, int j) {
+        int len = text.length();
+        while (true) {
+            int k = j;
+            while (k < len && text.charAt(k) != '\n' && Character.isWhitespace(text.charAt(k))) k++;
+            if (k < len && isClosing(text.charAt(k)) && (k == j || text.charAt(k) == '»')) {
+                j = k + 1;
+            } else {
+                return j;
+            }
+        }
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '…';
+    }
+
+    private static boolean isClosing(char c) {
+        return c == '"' || c == '\'' || c == ')' || c == ']' || c == '»' || c == '”' || c == '’';
+    }
+}
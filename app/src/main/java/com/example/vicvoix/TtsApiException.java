@@ -0,0 +1,44 @@
+package com.example.vicvoix;
+
+import java.io.IOException;
+import java.util.Date;
+
+import okhttp3.Response;
+
+/**
+ * Réponse HTTP en erreur de l'API TTS (code + Retry-After éventuel).
+ * Retry-After est lu sous ses deux formes : un nombre de secondes, ou une date HTTP
+ * convertie en délai depuis l'horloge locale (une date passée vaut 0).
+ */
+public final class TtsApiException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public final int code;
+    public final long retryAfterMs; // -1 si absent
+
+    public TtsApiException(int code, long retryAfterMs) {
+        super("Erreur API: " + code);
+        this.code = code;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    static TtsApiException from(Response response) {
+        long retryAfterMs = -1;
+        String header = response.header("Retry-After");
+        if (header != null) {
+            try {
+                retryAfterMs = Math.max(0, Long.parseLong(header.trim()) * 1000);
+            } catch (NumberFormatException e) {
+                // Ex. "Wed, 21 Oct 2026 07:28:00 GMT" ; illisible : le backoff par défaut s'applique
+                Date date = response.headers().getDate("Retry-After");
+                if (date != null) retryAfterMs = Math.max(0, date.getTime() - System.currentTimeMillis());
+            }
+        }
+        return new TtsApiException(response.code(), retryAfterMs);
+    }
+
+    /** 429 et 5xx sont transitoires ; les autres codes ne servent à rien de réessayer. */
+    public boolean isRetryable() {
+        return code == 429 || code >= 500;
+    }
+}
@@ -0,0 +1,443 @@
+package com.example.vicvoix;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Couche synthèse sans UI : catalogue des voix, synthèse segmentée, cache, lots.
+ * Aucune dépendance Android (testable sur JVM contre un serveur HTTP simulé) ;
+ * {@link TtsService} l'héberge pour qu'elle survive aux recréations d'Activity.
+ * La construction ne touche ni le réseau ni le disque : voir {@link #warmUp}.
+ */
+public final class TtsEngine {
+    public static final String DEFAULT_BASE_URL = "https://texttospeech.googleapis.com/v1/";
+    private static final long AUDIO_CACHE_MAX_BYTES = 50L * 1024 * 1024;
+
+    /** Document entièrement synthétisé par l'API (ex. pour l'historique). Appelé sur un thread quelconque. */
+    public interface DocumentListener {
+        void onDocumentComplete(List<SynthesisRequest> requests, List<File> chunks);
+    }
+
+    /** Passage occupé / inactif (synthèse ou lot en cours). Appelé sur un thread quelconque. */
+    public interface WorkListener {
+        void onWorkChanged(boolean busy);
+    }
+
+    /** Niveaux de {@link #trimMemory}, par pression croissante (cf. ComponentCallbacks2). */
+    public enum MemoryPressure {
+        /** Mémoire un peu juste, app au premier plan : réserve de tampons réduite de moitié. */
+        MODERATE,
+        /** Mémoire très juste, app au premier plan : plus aucun tampon en réserve. */
+        LOW,
+        /** App en arrière-plan, candidate à l'arrêt : catalogue des voix et spéculation relâchés aussi. */
+        BACKGROUND
+    }
+
+    private final Supplier<OkHttpClient> client;
+    private final TtsMetrics metrics = new TtsMetrics();
+    private final SynthesisRouter router = new SynthesisRouter(metrics);
+    private final RequestScheduler scheduler = new RequestScheduler();
+    private final ExecutorService executor;
+    private final AudioCache audioCache;
+    private final File batchDir;
+    private final VoiceCatalogStore voiceStore;
+    private final ChunkedSynthesizer synthesizer;
+    private final SpeculativeSynthesis speculative;
+    private final AtomicInteger activeWork = new AtomicInteger();
+    private volatile WorkListener workListener;
+    private volatile DocumentListener documentListener;
+    private SynthesisSession session; // dernière démarrée, suivie par l'UI
+    private SynthesisSession playbackSession;
+    private SynthesisSession exportSession;
+    private List<String> documentKeys = Collections.emptyList(); // segments de la dernière synthèse
+
+    public TtsEngine(String apiKey, File cacheDir, File filesDir) {
+        this(HttpClients::shared, DEFAULT_BASE_URL, apiKey, cacheDir, filesDir);
+    }
+
+    public TtsEngine(OkHttpClient client, String baseUrl, String apiKey, File cacheDir, File filesDir) {
+        this(() -> client, baseUrl, apiKey, cacheDir, filesDir);
+    }
+
+    private TtsEngine(Supplier<OkHttpClient> base, String baseUrl, String apiKey, File cacheDir, File filesDir) {
+        // newBuilder() partage pool de connexions et dispatcher avec le client fourni ;
+        // construit au premier appel réseau, ou par warmUp()
+        this.client = HttpClients.lazy(() -> base.get().newBuilder()
+                .eventListenerFactory(new MetricsEventListener.Factory(metrics))
+                .build());
+        this.executor = Executors.newSingleThreadExecutor();
+        this.audioCache = new AudioCache(new File(cacheDir, "tts_cache"), AUDIO_CACHE_MAX_BYTES);
+        this.batchDir = new File(filesDir, "batch");
+        this.voiceStore = new VoiceCatalogStore(new File(filesDir, "voices.json"), this.client,
+                baseUrl + "voices?key=" + apiKey, executor);
+        this.synthesizer = new ChunkedSynthesizer(this.client, baseUrl + "text:synthesize?key=" + apiKey,
+                audioCache, metrics, router, scheduler);
+        this.speculative = new SpeculativeSynthesis(synthesizer);
+    }
+
+    /**
+     * Prépare en arrière-plan ce que la première synthèse paierait sinon : client HTTP
+     * (TLS, classes OkHttp) et index du cache disque. À lancer une fois l'UI affichée.
+     */
+    public void warmUp() {
+        Thread t = new Thread(() -> {
+            audioCache.warmUp();
+            client.get();
+        }, "VicVoixWarmUp");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Thread du moteur, pour de petites tâches disque hors thread principal ; ignorées après {@link #shutdown}. */
+    public Executor background() {
+        return task -> {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Moteur arrêté : le prochain démarrage fera le ménage
+            }
+        };
+    }
+
+    public void setWorkListener(WorkListener listener) {
+        workListener = listener;
+    }
+
+    public void setDocumentListener(DocumentListener listener) {
+        documentListener = listener;
+    }
+
+    public boolean isBusy() {
+        return activeWork.get() > 0;
+    }
+
+    /** Rend de la mémoire au système ; tout ce qui est relâché se reconstruit à la demande. */
+    public void trimMemory(MemoryPressure pressure) {
+        BufferPool pool = BufferPool.shared();
+        pool.trim(pressure == MemoryPressure.MODERATE ? pool.pooled() / 2 : 0);
+        if (pressure == MemoryPressure.BACKGROUND) {
+            speculative.cancelAll();
+            voiceStore.trim();
+        }
+    }
+
+    /** Durées par phase et par voix, pour l'écran de diagnostic. */
+    public TtsMetrics metrics() {
+        return metrics;
+    }
+
+    /** Choix cloud / moteur de l'appareil pour la lecture ; sans moteur local, tout passe par le cloud. */
+    public SynthesisRouter router() {
+        return router;
+    }
+
+    /** Quotas, files de priorité et reprises des appels de synthèse. */
+    public RequestScheduler scheduler() {
+        return scheduler;
+    }
+
+    // --- Voix ---
+
+    public VoiceCatalog voiceCatalog() {
+        return voiceStore.current();
+    }
+
+    public boolean isVoiceCatalogStale() {
+        return voiceStore.isStale();
+    }
+
+    /** Lecture du catalogue persisté, hors thread appelant. */
+    public CompletableFuture<VoiceCatalog> loadVoiceCatalog() {
+        return CompletableFuture.supplyAsync(voiceStore::loadFromDisk, executor);
+    }
+
+    /** Rafraîchit le catalogue ; le futur vaut true si son contenu a changé. */
+    public CompletableFuture<Boolean> refreshVoices() {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        // Hors thread appelant : le premier appel peut construire le client HTTP
+        executor.execute(() -> voiceStore.refresh(new VoiceCatalogStore.Callback() {
+            @Override
+            public void onCatalog(VoiceCatalog catalog, boolean changed) {
+                future.complete(changed);
+            }
+
+            @Override
+            public void onError(String message) {
+                future.completeExceptionally(new Exception(message));
+            }
+        }));
+        return future;
+    }
+
+    // --- Synthèse ---
+
+    /**
+     * Démarre une synthèse segmentée et remplace la session du même type (lecture ou export), annulée.
+     * Une lecture continue pendant un export du même texte, et inversement.
+     * {@code primary} reçoit les segments dans l'ordre, même sans observateur attaché.
+     * Seuls les segments absents du cache sont synthétisés : après une retouche,
+     * une seule phrase repart vers l'API ({@link SynthesisSession#diff}).
+     * Hors export, un segment peut venir du moteur de l'appareil (WAV) selon le {@link SynthesisRouter}.
+     */
+    public SynthesisSession synthesize(List<SynthesisRequest> requests, boolean forExport,
+                                       ChunkedSynthesizer.Listener primary) {
+        RequestScheduler.Lane lane = forExport ? RequestScheduler.Lane.DOWNLOAD : RequestScheduler.Lane.INTERACTIVE;
+        return replaceSession(forExport, requests, primary, next -> synthesizer.start(requests, next, lane, !forExport));
+    }
+
+    /**
+     * Synthèse LINEAR16 lue en flux : le PCM part vers {@code sink} pendant le téléchargement.
+     * Les segments restent livrés en fichiers (cache) à la session, comme pour {@link #synthesize}.
+     * Toujours en cloud : voir {@link #prefersCloud}.
+     */
+    public SynthesisSession synthesizeStream(List<SynthesisRequest> requests, PcmStreamJob.Sink sink,
+                                             ChunkedSynthesizer.Listener primary) {
+        return replaceSession(false, requests, primary, next -> {
+            PcmStreamJob job = new PcmStreamJob(synthesizer, requests, sink, next);
+            job.start();
+            return job;
+        });
+    }
+
+    /** Vrai si le routeur enverrait ce segment au cloud (la lecture en flux LINEAR16 en dépend). */
+    public boolean prefersCloud(SynthesisRequest request) {
+        return router.decide(request) == SynthesisRouter.Route.CLOUD;
+    }
+
+    private SynthesisSession replaceSession(boolean forExport, List<SynthesisRequest> requests,
+                                            ChunkedSynthesizer.Listener primary,
+                                            Function<SynthesisSession, ChunkedSynthesizer.Cancellable> starter) {
+        SynthesisSession previous;
+        String encoding = requests.isEmpty() ? SynthesisRequest.DEFAULT_ENCODING : requests.get(0).audioEncoding;
+        List<String> keys = new ArrayList<>(requests.size());
+        for (SynthesisRequest req : requests) keys.add(req.cacheKey());
+        SynthesisSession next;
+        synchronized (this) {
+            next = new SynthesisSession(forExport, encoding, SegmentDiff.compute(documentKeys, requests, audioCache),
+                    notifyingDocument(requests, primary), this::endWork);
+            // Épinglés jusqu'à la prochaine synthèse : la retouche suivante retrouve tout en cache
+            audioCache.pin(keys);
+            documentKeys = keys;
+            if (forExport) {
+                previous = exportSession;
+                exportSession = next;
+            } else {
+                previous = playbackSession;
+                playbackSession = next;
+            }
+            session = next;
+        }
+        beginWork();
+        next.setJob(starter.apply(next));
+        // Annulée après le démarrage de la nouvelle : les segments identiques (double appui)
+        // rejoignent les appels déjà en vol au lieu de les relancer. L'autre type de session
+        // continue : lecture puis export du même texte se partagent ces mêmes appels.
+        if (previous != null) previous.cancel();
+        return next;
+    }
+
+    // Le document complet est signalé avant la lecture / l'export ; segments du moteur local exclus
+    private ChunkedSynthesizer.Listener notifyingDocument(List<SynthesisRequest> requests,
+                                                         ChunkedSynthesizer.Listener primary) {
+        return new ChunkedSynthesizer.Listener() {
+            @Override
+            public void onChunkReady(int index, int total, File audio) {
+                if (primary != null) primary.onChunkReady(index, total, audio);
+            }
+
+            @Override
+            public void onComplete(List<File> chunks) {
+                DocumentListener l = documentListener;
+                if (l != null && audioCache.ownsAll(chunks)) l.onDocumentComplete(requests, chunks);
+                if (primary != null) primary.onComplete(chunks);
+            }
+
+            @Override
+            public void onError(String message) {
+                if (primary != null) primary.onError(message);
+            }
+        };
+    }
+
+    public synchronized SynthesisSession currentSession() {
+        return session;
+    }
+
+    /** Oublie la session si c'est encore la courante (résultat consommé par l'UI). */
+    public synchronized void dismissSession(SynthesisSession done) {
+        if (session == done) session = null;
+    }
+
+    /**
+     * Pré-synthèse des segments déjà rédigés (phrases terminées), en arrière-plan et un à la fois.
+     * Remplace la demande précédente : les segments qui n'y figurent plus sont annulés.
+     */
+    public void speculate(List<SynthesisRequest> finished) {
+        speculative.update(finished);
+    }
+
+    public void cancelSpeculation() {
+        speculative.cancelAll();
+    }
+
+    /** Synthèse d'un seul segment, résultat en fichier de cache. */
+    public CompletableFuture<File> synthesizeToFile(SynthesisRequest request) {
+        beginWork();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return synthesizer.fetch(request, RequestScheduler.Lane.DOWNLOAD);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                endWork();
+            }
+        }, executor);
+    }
+
+    /**
+     * Écrit les segments en cache comme un seul clip dans {@code out} (fermé à la fin), hors thread appelant.
+     * Copie noyau à noyau par {@link java.nio.channels.FileChannel#transferTo} : rien n'est resynthétisé
+     * ni chargé en mémoire. MP3 : trames indépendantes, concaténables telles quelles ; Ogg : flux
+     * chaînés, valides aussi ; WAV : un seul en-tête pour tout le PCM.
+     */
+    public CompletableFuture<Long> export(List<File> files, String audioEncoding, WritableByteChannel out) {
+        return writeAsync(out, target -> writeClip(files, audioEncoding, target));
+    }
+
+    /**
+     * Assemble des clips (ex. de l'historique, voix différentes) séparés par {@code silenceMs},
+     * sans réencodage ; voir {@link ClipComposer}. {@code out} est fermé à la fin.
+     */
+    public CompletableFuture<Long> compose(List<File> clips, String audioEncoding, long silenceMs,
+                                           WritableByteChannel out) {
+        return writeAsync(out, target -> ClipComposer.compose(clips, audioEncoding, silenceMs, target));
+    }
+
+    private interface ChannelWriter {
+        long writeTo(WritableByteChannel out) throws IOException;
+    }
+
+    private CompletableFuture<Long> writeAsync(WritableByteChannel out, ChannelWriter writer) {
+        beginWork();
+        return CompletableFuture.supplyAsync(() -> {
+            try (WritableByteChannel target = out) {
+                return writer.writeTo(target);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            } finally {
+                endWork();
+            }
+        }, executor);
+    }
+
+    /** Assemble les segments en un clip (voir {@link #export}) ; synchrone. */
+    static long writeClip(List<File> files, String audioEncoding, WritableByteChannel out) throws IOException {
+        if (SynthesisRequest.ENCODING_LINEAR16.equals(audioEncoding)) return WavFormat.concat(files, out);
+        long total = 0;
+        for (File f : files) {
+            try (FileInputStream in = new FileInputStream(f)) {
+                long size = in.getChannel().size();
+                WavFormat.transferFully(in.getChannel(), 0, size, out);
+                total += size;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Lance un lot vers {@code destination} (identifiant opaque pour le moteur, ex. URI SAF),
+     * journalisé pour reprendre après un arrêt du processus : voir {@link #pendingBatch}.
+     * Le journal est écrit (et synchronisé sur le disque) sur le thread du moteur, puis les clips partent.
+     */
+    public BatchSynthesisQueue startBatch(List<BatchScript.Item> items, String defaultVoice, int parallelism,
+                                          String destination, BatchSynthesisQueue.Sink sink,
+                                          BatchSynthesisQueue.Listener listener) {
+        BatchSynthesisQueue queue = newBatch(parallelism, sink, listener);
+        executor.execute(() -> {
+            BatchJournal journal;
+            try {
+                journal = BatchJournal.create(batchDir, items, defaultVoice, parallelism, destination);
+            } catch (IOException e) {
+                journal = null; // lot lancé quand même, sans reprise possible
+            }
+            queue.submit(items, defaultVoice, journal);
+        });
+        return queue;
+    }
+
+    /** Lot interrompu par un arrêt du processus, ou null ; lu hors thread appelant. */
+    public CompletableFuture<BatchJournal> pendingBatch() {
+        return CompletableFuture.supplyAsync(() -> BatchJournal.load(batchDir), executor);
+    }
+
+    /** Reprend un lot interrompu à partir de son dernier clip terminé. */
+    public BatchSynthesisQueue resumeBatch(BatchJournal journal, BatchSynthesisQueue.Sink sink,
+                                           BatchSynthesisQueue.Listener listener) {
+        BatchSynthesisQueue queue = newBatch(journal.parallelism, sink, listener);
+        queue.submit(journal.remaining(), journal.defaultVoice, journal);
+        return queue;
+    }
+
+    private BatchSynthesisQueue newBatch(int parallelism, BatchSynthesisQueue.Sink sink,
+                                         BatchSynthesisQueue.Listener listener) {
+        beginWork();
+        return new BatchSynthesisQueue(synthesizer, parallelism, sink,
+                new BatchSynthesisQueue.Listener() {
+                    @Override
+                    public void onProgress(BatchSynthesisQueue.Progress progress) {
+                        listener.onProgress(progress);
+                    }
+
+                    @Override
+                    public void onFinished(BatchSynthesisQueue.Progress progress) {
+                        endWork();
+                        listener.onFinished(progress);
+                    }
+                });
+    }
+
+    public void shutdown() {
+        SynthesisSession playback;
+        SynthesisSession export;
+        synchronized (this) {
+            playback = playbackSession;
+            export = exportSession;
+        }
+        if (playback != null) playback.cancel();
+        if (export != null) export.cancel();
+        speculative.cancelAll();
+        // Pas d'arrêt du client : partagé par le processus, ses connexions restent chaudes
+        executor.shutdownNow();
+        router.shutdown();
+        scheduler.shutdown();
+    }
+
+    private void beginWork() {
+        if (activeWork.incrementAndGet() == 1) notifyWork(true);
+    }
+
+    private void endWork() {
+        if (activeWork.decrementAndGet() == 0) notifyWork(false);
+    }
+
+    private void notifyWork(boolean busy) {
+        WorkListener l = workListener;
+        if (l != null) l.onWorkChanged(busy);
+    }
+}
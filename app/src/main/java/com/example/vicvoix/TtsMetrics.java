@@ -0,0 +1,148 @@
+package com.example.vicvoix;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Durées du chemin critique, par phase et par voix : réseau (DNS, connexion, TLS,
+ * attente serveur, téléchargement), décodage, écriture disque, préparation du lecteur.
+ * Export JSON / CSV pour comparer versions et réseaux.
+ */
+public final class TtsMetrics {
+    public static final String CALL = "call";
+    public static final String DNS = "dns";
+    public static final String CONNECT = "connect";
+    public static final String TLS = "tls";
+    /** Requête envoyée -> en-têtes de réponse : essentiellement la synthèse côté serveur. */
+    public static final String SERVER = "server";
+    public static final String DOWNLOAD = "download";
+    /** Parcours JSON + Base64 de audioContent (en flux, recouvre le téléchargement). */
+    public static final String DECODE = "decode";
+    public static final String WRITE = "write";
+    public static final String PREPARE = "prepare";
+    /** Synthèse par le moteur de l'appareil (par langue, la voix cloud ne s'y applique pas). */
+    public static final String LOCAL = "local";
+    /** Appui sur Générer -> premiers échantillons remis au lecteur. */
+    public static final String FIRST_AUDIO = "first_audio";
+    public static final String ALL_VOICES = "*";
+
+    private static final List<String> PHASE_ORDER = Arrays.asList(
+            FIRST_AUDIO, CALL, DNS, CONNECT, TLS, SERVER, DOWNLOAD, DECODE, WRITE, PREPARE, LOCAL);
+
+    public static final class Row {
+        public final String phase;
+        public final String voice;
+        public final long count;
+        public final double p50Ms;
+        public final double p95Ms;
+        public final double p99Ms;
+        public final double maxMs;
+
+        Row(String phase, String voice, long count, double[] p) {
+            this.phase = phase;
+            this.voice = voice;
+            this.count = count;
+            this.p50Ms = p[0];
+            this.p95Ms = p[1];
+            this.p99Ms = p[2];
+            this.maxMs = p[3];
+        }
+    }
+
+    // clé : phase + '\t' + voix
+    private final Map<String, LatencyHistogram> histograms = new TreeMap<>();
+
+    /** Enregistre une durée pour la phase, toutes voix confondues et pour {@code voice} si connue. */
+    public void record(String phase, String voice, long nanos) {
+        if (nanos < 0) return;
+        histogram(phase, ALL_VOICES).record(nanos);
+        if (voice != null) histogram(phase, voice).record(nanos);
+    }
+
+    private synchronized LatencyHistogram histogram(String phase, String voice) {
+        String key = phase + '\t' + voice;
+        LatencyHistogram h = histograms.get(key);
+        if (h == null) {
+            h = new LatencyHistogram();
+            histograms.put(key, h);
+        }
+        return h;
+    }
+
+    public synchronized void reset() {
+        histograms.clear();
+    }
+
+    /** Lignes triées par phase (ordre du chemin critique) puis par voix, "*" en tête. */
+    public List<Row> snapshot() {
+        Map<String, LatencyHistogram> copy;
+        synchronized (this) {
+            copy = new TreeMap<>(histograms);
+        }
+        List<Row> rows = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> e : copy.entrySet()) {
+            double[] p = e.getValue().percentilesMs(0.50, 0.95, 0.99, 1.0);
+            if (p.length == 0) continue;
+            int tab = e.getKey().indexOf('\t');
+            rows.add(new Row(e.getKey().substring(0, tab), e.getKey().substring(tab + 1), e.getValue().count(), p));
+        }
+        rows.sort((a, b) -> {
+            int c = Integer.compare(phaseRank(a.phase), phaseRank(b.phase));
+            if (c != 0) return c;
+            if (a.voice.equals(b.voice)) return 0;
+            if (ALL_VOICES.equals(a.voice)) return -1;
+            if (ALL_VOICES.equals(b.voice)) return 1;
+            return a.voice.compareTo(b.voice);
+        });
+        return rows;
+    }
+
+    private static int phaseRank(String phase) {
+        int i = PHASE_ORDER.indexOf(phase);
+        return i < 0 ? PHASE_ORDER.size() : i;
+    }
+
+    public void writeJson(Writer out, long exportedAt) throws IOException {
+        JsonWriter w = new JsonWriter(out);
+        w.setIndent("  ");
+        w.beginObject();
+        w.name("exportedAt").value(exportedAt);
+        w.name("window").value(LatencyHistogram.WINDOW);
+        w.name("phases").beginArray();
+        for (Row r : snapshot()) {
+            w.beginObject();
+            w.name("phase").value(r.phase);
+            w.name("voice").value(r.voice);
+            w.name("count").value(r.count);
+            w.name("p50Ms").value(round(r.p50Ms));
+            w.name("p95Ms").value(round(r.p95Ms));
+            w.name("p99Ms").value(round(r.p99Ms));
+            w.name("maxMs").value(round(r.maxMs));
+            w.endObject();
+        }
+        w.endArray();
+        w.endObject();
+        w.flush();
+    }
+
+    public void writeCsv(Writer out) throws IOException {
+        out.write("phase,voice,count,p50_ms,p95_ms,p99_ms,max_ms\n");
+        for (Row r : snapshot()) {
+            out.write(String.format(Locale.ROOT, "%s,%s,%d,%.2f,%.2f,%.2f,%.2f\n",
+                    r.phase, r.voice, r.count, r.p50Ms, r.p95Ms, r.p99Ms, r.maxMs));
+        }
+        out.flush();
+    }
+
+    private static double round(double ms) {
+        return Math.round(ms * 100) / 100.0;
+    }
+}
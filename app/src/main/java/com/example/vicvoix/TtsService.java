@@ -0,0 +1,433 @@
+package com.example.vicvoix;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Intent;
+import android.content.UriPermission;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Service lié qui héberge le {@link TtsEngine} et le lecteur audio.
+ * Il passe au premier plan pendant une synthèse ou une lecture, si bien qu'une rotation
+ * ou un passage en arrière-plan n'interrompt ni l'une ni l'autre.
+ * Les méthodes publiques s'appellent sur le thread principal.
+ */
+public class TtsService extends Service {
+    private static final String TAG = "VicVoixTTS";
+    private static final String CHANNEL_ID = "vicvoix_synthesis";
+    private static final int NOTIFICATION_ID = 1;
+    private static final String PREFS = "vicvoix";
+    private static final String PREF_CLOUD_BUDGET_MS = "cloudBudgetMs";
+
+    public final class LocalBinder extends Binder {
+        public TtsService getService() {
+            return TtsService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private TtsEngine engine;
+    private DeviceTts deviceTts;
+    private ClipHistory history;
+    private AudioPlayback player;
+    private AudioPlayback.Listener playerUiListener;
+    private long playRequestedAt; // System.nanoTime() de la demande de lecture, 0 une fois mesuré
+    private String playVoice;
+    private BatchSynthesisQueue batchQueue;
+    private BatchSynthesisQueue.Progress batchProgress;
+    private boolean batchFinished;
+    private BatchSynthesisQueue.Listener batchUiListener;
+    private boolean started;
+    private boolean foreground;
+    private boolean destroyed;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        engine = new TtsEngine(BuildConfig.TTS_API_KEY, getCacheDir(), getFilesDir());
+        engine.setWorkListener(busy -> handler.post(this::updateServiceState));
+        history = new ClipHistory(this);
+        engine.setDocumentListener(history::record);
+        engine.router().setBudgetMs(getSharedPreferences(PREFS, MODE_PRIVATE)
+                .getLong(PREF_CLOUD_BUDGET_MS, SynthesisRouter.DEFAULT_BUDGET_MS));
+        // Hors du démarrage : une fois la première image affichée et le thread principal libre,
+        // liaison au moteur TTS de l'appareil et préchauffage du client HTTP / du cache
+        Looper.myQueue().addIdleHandler(() -> {
+            if (destroyed) return false;
+            deviceTts = new DeviceTts(this, engine.background());
+            engine.router().setLocal(deviceTts, () -> DeviceTts.isOnline(this));
+            engine.warmUp();
+            // Lot interrompu par l'arrêt du processus : il repart de son dernier clip terminé
+            engine.pendingBatch().thenAccept(journal -> {
+                if (journal != null) handler.post(() -> resumeBatch(journal));
+            });
+            return false;
+        });
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        releasePlayer();
+        if (batchQueue != null) batchQueue.cancel();
+        engine.shutdown();
+        destroyed = true;
+        if (deviceTts != null) deviceTts.shutdown();
+        history.shutdown();
+        super.onDestroy();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            engine.trimMemory(TtsEngine.MemoryPressure.BACKGROUND);
+        } else if (level == TRIM_MEMORY_UI_HIDDEN) {
+            return; // simple passage en arrière-plan, pas de pression
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            engine.trimMemory(TtsEngine.MemoryPressure.LOW);
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            engine.trimMemory(TtsEngine.MemoryPressure.MODERATE);
+        } else {
+            return;
+        }
+        if (level >= TRIM_MEMORY_RUNNING_LOW) history.trimMemory();
+    }
+
+    public TtsEngine engine() {
+        return engine;
+    }
+
+    /** Clips déjà générés, rejouables sans réseau. */
+    public ClipHistory history() {
+        return history;
+    }
+
+    /** Délai accordé au cloud avant de basculer sur le moteur de l'appareil ; 0 = cloud uniquement. */
+    public void setCloudBudgetMs(long budgetMs) {
+        engine.router().setBudgetMs(budgetMs);
+        getSharedPreferences(PREFS, MODE_PRIVATE).edit().putLong(PREF_CLOUD_BUDGET_MS, budgetMs).apply();
+    }
+
+    // --- Lecture ---
+
+    /**
+     * Synthétise et joue chaque segment dès qu'il arrive.
+     * En LINEAR16, le PCM part vers un AudioTrack pendant le téléchargement même du premier segment,
+     * sauf si le cloud semble hors budget (hors ligne, réseau lent) : lecture segmentée routée.
+     */
+    public SynthesisSession play(List<SynthesisRequest> requests) {
+        playRequestedAt = System.nanoTime();
+        playVoice = requests.get(0).voiceName;
+        if (SynthesisRequest.ENCODING_LINEAR16.equals(requests.get(0).audioEncoding)
+                && engine.prefersCloud(requests.get(0))) {
+            return playStream(requests);
+        }
+        final ChunkPlayer chunkPlayer = newChunkPlayer(playVoice);
+        return engine.synthesize(requests, false, new ChunkedSynthesizer.Listener() {
+            @Override
+            public void onChunkReady(int index, int total, File audio) {
+                handler.post(() -> {
+                    if (player == chunkPlayer) chunkPlayer.addChunk(audio);
+                    // Le MediaPlayer garde son propre descripteur : un WAV du moteur local peut partir
+                    engine.router().releaseLocal(audio);
+                });
+            }
+
+            @Override
+            public void onComplete(List<File> chunks) {
+                handler.post(() -> {
+                    if (player == chunkPlayer) chunkPlayer.finish();
+                });
+            }
+
+            @Override
+            public void onError(String message) {
+                // Rapporté à l'UI par la session
+            }
+        });
+    }
+
+    private SynthesisSession playStream(List<SynthesisRequest> requests) {
+        releasePlayer();
+        final PcmStreamPlayer streamPlayer = new PcmStreamPlayer(playerCallbacks);
+        player = streamPlayer;
+        updateServiceState();
+        return engine.synthesizeStream(requests, streamPlayer.liveSink(), new ChunkedSynthesizer.Listener() {
+            @Override
+            public void onChunkReady(int index, int total, File audio) {
+                streamPlayer.addSegment(audio);
+            }
+
+            @Override
+            public void onComplete(List<File> chunks) {
+                // Fin de lecture signalée par la piste elle-même
+            }
+
+            @Override
+            public void onError(String message) {
+                // Rapporté à l'UI par la session
+            }
+        });
+    }
+
+    /** Rejoue des fichiers déjà présents (ex. après export), sans synthèse. */
+    public void playFiles(List<File> audioFiles) {
+        playRequestedAt = 0;
+        ChunkPlayer replay = newChunkPlayer(null);
+        for (File f : audioFiles) replay.addChunk(f);
+        replay.finish();
+    }
+
+    public AudioPlayback player() {
+        return player;
+    }
+
+    public void setPlayerListener(AudioPlayback.Listener listener) {
+        playerUiListener = listener;
+    }
+
+    public void pausePlayback() {
+        if (player != null) player.pause();
+        updateServiceState();
+    }
+
+    public void resumePlayback() {
+        if (player != null) player.resume();
+        updateServiceState();
+    }
+
+    public void stopPlayback() {
+        releasePlayer();
+        updateServiceState();
+    }
+
+    private final AudioPlayback.Listener playerCallbacks = new AudioPlayback.Listener() {
+        @Override
+        public void onStarted() {
+            if (playRequestedAt != 0) {
+                engine.metrics().record(TtsMetrics.FIRST_AUDIO, playVoice, System.nanoTime() - playRequestedAt);
+                playRequestedAt = 0;
+            }
+            if (playerUiListener != null) playerUiListener.onStarted();
+            updateServiceState();
+        }
+
+        @Override
+        public void onCompleted() {
+            if (playerUiListener != null) playerUiListener.onCompleted();
+            updateServiceState();
+        }
+
+        @Override
+        public void onError(String message) {
+            if (playerUiListener != null) playerUiListener.onError(message);
+        }
+    };
+
+    private ChunkPlayer newChunkPlayer(String voice) {
+        releasePlayer();
+        ChunkPlayer chunkPlayer = new ChunkPlayer(this, playerCallbacks, engine.metrics(), voice);
+        player = chunkPlayer;
+        updateServiceState();
+        return chunkPlayer;
+    }
+
+    private void releasePlayer() {
+        if (player != null) {
+            player.release();
+            player = null;
+        }
+    }
+
+    // --- Lots ---
+
+    /**
+     * Lance un lot dont les clips sont écrits dans l'arborescence SAF {@code treeUri}.
+     * Le lot est journalisé : tué en cours de route, il reprend au prochain démarrage du service.
+     */
+    public void startBatch(List<BatchScript.Item> items, String defaultVoice, int parallelism, Uri treeUri) {
+        if (batchQueue != null) batchQueue.cancel();
+        try {
+            // Accès au dossier conservé après un arrêt du processus, pour la reprise
+            getContentResolver().takePersistableUriPermission(treeUri,
+                    Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+        } catch (SecurityException e) {
+            Log.w(TAG, "takePersistableUriPermission", e);
+        }
+        batchProgress = null;
+        batchFinished = false;
+        batchQueue = engine.startBatch(items, defaultVoice, parallelism, treeUri.toString(),
+                batchSink(treeUri), batchCallbacks);
+    }
+
+    private void resumeBatch(BatchJournal journal) {
+        if (destroyed || batchQueue != null) return;
+        Uri treeUri = Uri.parse(journal.destination);
+        if (!hasPersistedAccess(treeUri)) {
+            Log.w(TAG, "resumeBatch: accès au dossier perdu, lot abandonné");
+            engine.background().execute(journal::delete);
+            return;
+        }
+        batchProgress = null;
+        batchFinished = false;
+        batchQueue = engine.resumeBatch(journal, batchSink(treeUri), batchCallbacks);
+    }
+
+    private boolean hasPersistedAccess(Uri treeUri) {
+        for (UriPermission p : getContentResolver().getPersistedUriPermissions()) {
+            if (p.getUri().equals(treeUri) && p.isWritePermission()) return true;
+        }
+        return false;
+    }
+
+    private BatchSynthesisQueue.Sink batchSink(Uri treeUri) {
+        Uri parent = DocumentsContract.buildDocumentUriUsingTree(treeUri, DocumentsContract.getTreeDocumentId(treeUri));
+        return new BatchSynthesisQueue.Sink() {
+            @Override
+            public String create(BatchScript.Item item) throws IOException {
+                Uri doc;
+                try {
+                    doc = DocumentsContract.createDocument(getContentResolver(), parent, "audio/mpeg",
+                            batchFileName(item));
+                } catch (SecurityException e) {
+                    throw new IOException("Accès au dossier refusé", e);
+                }
+                if (doc == null) throw new IOException("Création du fichier impossible");
+                return doc.toString();
+            }
+
+            @Override
+            public OutputStream open(String target) throws IOException {
+                OutputStream os = getContentResolver().openOutputStream(Uri.parse(target));
+                if (os == null) throw new IOException("Création du fichier impossible");
+                return os;
+            }
+
+            @Override
+            public void discard(String target) throws IOException {
+                try {
+                    DocumentsContract.deleteDocument(getContentResolver(), Uri.parse(target));
+                } catch (SecurityException e) {
+                    throw new IOException("Suppression impossible", e);
+                }
+            }
+        };
+    }
+
+    private final BatchSynthesisQueue.Listener batchCallbacks = new BatchSynthesisQueue.Listener() {
+        @Override
+        public void onProgress(BatchSynthesisQueue.Progress progress) {
+            handler.post(() -> {
+                batchProgress = progress;
+                if (batchUiListener != null) batchUiListener.onProgress(progress);
+            });
+        }
+
+        @Override
+        public void onFinished(BatchSynthesisQueue.Progress progress) {
+            handler.post(() -> {
+                batchProgress = progress;
+                batchFinished = true;
+                if (batchUiListener != null) batchUiListener.onFinished(progress);
+            });
+        }
+    };
+
+    /** Abonne l'UI à l'avancement du lot et lui renvoie le dernier état connu. */
+    public void setBatchListener(BatchSynthesisQueue.Listener listener) {
+        batchUiListener = listener;
+        if (listener != null && batchProgress != null) {
+            if (batchFinished) listener.onFinished(batchProgress);
+            else listener.onProgress(batchProgress);
+        }
+    }
+
+    private static String batchFileName(BatchScript.Item item) {
+        String slug = item.text.length() > 32 ? item.text.substring(0, 32) : item.text;
+        slug = slug.replaceAll("[^\\p{L}\\p{N}]+", "_").replaceAll("^_|_$", "");
+        return String.format(Locale.ROOT, "VicVoix_%03d_%s.mp3", item.index + 1, slug);
+    }
+
+    // --- Cycle de vie : démarré tant qu'il reste quelque chose à garder, premier plan si actif ---
+
+    private void updateServiceState() {
+        boolean playing = player != null && (player.isPlaying() || player.isBuffering());
+        boolean busy = engine.isBusy() || playing;
+        boolean keep = busy || player != null;
+
+        if (keep && !started) {
+            try {
+                if (busy) {
+                    ContextCompat.startForegroundService(this, new Intent(this, TtsService.class));
+                } else {
+                    startService(new Intent(this, TtsService.class));
+                }
+                started = true;
+            } catch (IllegalStateException e) {
+                // Démarrage refusé en arrière-plan : le service reste simplement lié
+                Log.w(TAG, "TtsService start", e);
+            }
+        }
+        if (busy && !foreground && started) {
+            int type = Build.VERSION.SDK_INT >= 29
+                    ? ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC | ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK
+                    : 0;
+            ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification(), type);
+            foreground = true;
+        } else if (!busy && foreground) {
+            ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+            foreground = false;
+        }
+        if (!keep && started) {
+            stopSelf(); // détruit seulement quand plus aucune Activity n'est liée
+            started = false;
+        }
+    }
+
+    private Notification buildNotification() {
+        if (Build.VERSION.SDK_INT >= 26) {
+            NotificationManager nm = getSystemService(NotificationManager.class);
+            if (nm.getNotificationChannel(CHANNEL_ID) == null) {
+                nm.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Synthèse vocale",
+                        NotificationManager.IMPORTANCE_LOW));
+            }
+        }
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_play)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText("Synthèse / lecture en cours")
+                .setOngoing(true)
+                .build();
+    }
+}
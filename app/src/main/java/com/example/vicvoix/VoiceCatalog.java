@@ -0,0 +1,161 @@
+package com.example.vicvoix;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Catalogue des voix (/v1/voices) indexé par code langue.
+ * Le format persisté reprend celui de l'API, plus fetchedAt / etag.
+ */
+public final class VoiceCatalog {
+
+    public static final class Voice {
+        public final String name;
+        public final List<String> languageCodes;
+        public final String ssmlGender;
+        public final int naturalSampleRateHertz;
+
+        public Voice(String name, List<String> languageCodes, String ssmlGender, int naturalSampleRateHertz) {
+            this.name = name;
+            this.languageCodes = languageCodes;
+            this.ssmlGender = ssmlGender;
+            this.naturalSampleRateHertz = naturalSampleRateHertz;
+        }
+
+        /** Langue à envoyer dans voice.languageCode pour cette voix. */
+        public String primaryLanguage() {
+            return languageCodes.isEmpty() ? SynthesisRequest.DEFAULT_LANGUAGE : languageCodes.get(0);
+        }
+    }
+
+    public static final VoiceCatalog EMPTY = new VoiceCatalog(Collections.<Voice>emptyList(), 0L, null);
+
+    public final List<Voice> voices;
+    public final long fetchedAt;
+    public final String etag;
+    private final Map<String, List<Voice>> byLanguage = new TreeMap<>();
+
+    public VoiceCatalog(List<Voice> voices, long fetchedAt, String etag) {
+        this.voices = Collections.unmodifiableList(voices);
+        this.fetchedAt = fetchedAt;
+        this.etag = etag;
+        for (Voice v : voices) {
+            for (String lang : v.languageCodes) {
+                List<Voice> list = byLanguage.get(lang);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    byLanguage.put(lang, list);
+                }
+                list.add(v);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return voices.isEmpty();
+    }
+
+    /** Codes langue triés. */
+    public List<String> languages() {
+        return new ArrayList<>(byLanguage.keySet());
+    }
+
+    public List<Voice> voicesFor(String languageCode) {
+        List<Voice> list = byLanguage.get(languageCode);
+        return list == null ? Collections.<Voice>emptyList() : Collections.unmodifiableList(list);
+    }
+
+    public Voice find(String name) {
+        for (Voice v : voices) {
+            if (v.name.equals(name)) return v;
+        }
+        return null;
+    }
+
+    public VoiceCatalog withFetchedAt(long newFetchedAt) {
+        return new VoiceCatalog(voices, newFetchedAt, etag);
+    }
+
+    /** Lit une réponse /v1/voices ou un catalogue persisté. */
+    public static VoiceCatalog read(Reader in, long defaultFetchedAt, String defaultEtag) throws IOException {
+        JsonReader r = new JsonReader(in);
+        List<Voice> voices = new ArrayList<>();
+        long fetchedAt = defaultFetchedAt;
+        String etag = defaultEtag;
+        r.beginObject();
+        while (r.hasNext()) {
+            String field = r.nextName();
+            if ("voices".equals(field)) {
+                r.beginArray();
+                while (r.hasNext()) voices.add(readVoice(r));
+                r.endArray();
+            } else if ("fetchedAt".equals(field)) {
+                fetchedAt = r.nextLong();
+            } else if ("etag".equals(field) && r.peek() == JsonToken.STRING) {
+                etag = r.nextString();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+        return new VoiceCatalog(voices, fetchedAt, etag);
+    }
+
+    private static Voice readVoice(JsonReader r) throws IOException {
+        String name = null;
+        List<String> languages = new ArrayList<>(1);
+        String gender = null;
+        int sampleRate = 0;
+        r.beginObject();
+        while (r.hasNext()) {
+            String field = r.nextName();
+            if ("name".equals(field)) {
+                name = r.nextString();
+            } else if ("languageCodes".equals(field)) {
+                r.beginArray();
+                while (r.hasNext()) languages.add(r.nextString());
+                r.endArray();
+            } else if ("ssmlGender".equals(field)) {
+                gender = r.nextString();
+            } else if ("naturalSampleRateHertz".equals(field)) {
+                sampleRate = r.nextInt();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+        if (name == null) throw new IOException("Voix sans nom");
+        return new Voice(name, languages, gender, sampleRate);
+    }
+
+    public void write(Writer out) throws IOException {
+        JsonWriter w = new JsonWriter(out);
+        w.beginObject();
+        w.name("fetchedAt").value(fetchedAt);
+        if (etag != null) w.name("etag").value(etag);
+        w.name("voices").beginArray();
+        for (Voice v : voices) {
+            w.beginObject();
+            w.name("name").value(v.name);
+            w.name("languageCodes").beginArray();
+            for (String lang : v.languageCodes) w.value(lang);
+            w.endArray();
+            if (v.ssmlGender != null) w.name("ssmlGender").value(v.ssmlGender);
+            w.name("naturalSampleRateHertz").value(v.naturalSampleRateHertz);
+            w.endObject();
+        }
+        w.endArray();
+        w.endObject();
+        w.flush();
+    }
+}
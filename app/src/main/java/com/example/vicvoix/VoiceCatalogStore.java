@@ -0,0 +1,162 @@
+package com.example.vicvoix;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Catalogue des voix persisté sur l'appareil, avec TTL et rafraîchissement
+ * conditionnel (If-None-Match) en arrière-plan.
+ * Sous pression mémoire, {@link #trim} relâche la copie en mémoire ; le prochain accès
+ * renvoie le catalogue vide et lance sa relecture depuis le disque sur {@code background}
+ * (jamais sur le thread appelant, souvent celui de l'UI).
+ */
+public final class VoiceCatalogStore {
+    public static final long TTL_MS = 24L * 60 * 60 * 1000;
+
+    /** Appelé sur un thread OkHttp. */
+    public interface Callback {
+        void onCatalog(VoiceCatalog catalog, boolean changed);
+        void onError(String message);
+    }
+
+    private final File file;
+    private final Supplier<OkHttpClient> client;
+    private final String voicesUrl;
+    private final Executor background;
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private volatile VoiceCatalog current = VoiceCatalog.EMPTY;
+    private volatile boolean trimmed;
+    private volatile long trimmedFetchedAt; // date du catalogue relâché : isStale() sans relecture
+
+    public VoiceCatalogStore(File file, Supplier<OkHttpClient> client, String voicesUrl, Executor background) {
+        this.file = file;
+        this.client = client;
+        this.voicesUrl = voicesUrl;
+        this.background = background;
+    }
+
+    /** Catalogue en mémoire ; vide juste après un {@link #trim}, le temps de la relecture. */
+    public VoiceCatalog current() {
+        VoiceCatalog c = current;
+        if (trimmed) scheduleReload();
+        return c;
+    }
+
+    /** Relâche le catalogue en mémoire s'il est aussi sur le disque. */
+    public synchronized void trim() {
+        if (!current.isEmpty() && file.isFile()) {
+            trimmedFetchedAt = current.fetchedAt;
+            current = VoiceCatalog.EMPTY;
+            trimmed = true;
+        }
+    }
+
+    private void scheduleReload() {
+        if (!reloading.compareAndSet(false, true)) return;
+        try {
+            background.execute(() -> {
+                try {
+                    reloadTrimmed();
+                } finally {
+                    reloading.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reloading.set(false); // moteur arrêté
+        }
+    }
+
+    private synchronized void reloadTrimmed() {
+        if (trimmed) loadFromDisk();
+    }
+
+    /** Recharge le catalogue persisté ; catalogue vide si absent ou illisible. */
+    public synchronized VoiceCatalog loadFromDisk() {
+        if (file.isFile()) {
+            try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+                current = VoiceCatalog.read(in, 0L, null);
+            } catch (IOException | RuntimeException e) {
+                file.delete();
+            }
+        }
+        // Après current : isStale() ne voit jamais un catalogue vide qui ne serait plus « relâché »
+        trimmed = false;
+        return current;
+    }
+
+    public boolean isStale() {
+        boolean wasTrimmed = trimmed;
+        VoiceCatalog c = current();
+        if (c.isEmpty() && wasTrimmed) return System.currentTimeMillis() - trimmedFetchedAt > TTL_MS;
+        return c.isEmpty() || System.currentTimeMillis() - c.fetchedAt > TTL_MS;
+    }
+
+    /** Hors thread UI : un catalogue relâché est d'abord relu, pour la requête conditionnelle. */
+    public void refresh(Callback callback) {
+        Request.Builder builder = new Request.Builder().url(voicesUrl);
+        reloadTrimmed();
+        VoiceCatalog known = current;
+        if (!known.isEmpty() && known.etag != null) {
+            builder.header("If-None-Match", known.etag);
+        }
+        client.get().newCall(builder.build()).enqueue(new okhttp3.Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                callback.onError("Erreur réseau pour voix: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    long now = System.currentTimeMillis();
+                    if (r.code() == HttpURLConnection.HTTP_NOT_MODIFIED && !known.isEmpty()) {
+                        current = known.withFetchedAt(now);
+                        trimmed = false;
+                        save(current);
+                        callback.onCatalog(current, false);
+                        return;
+                    }
+                    if (!r.isSuccessful()) {
+                        callback.onError("Erreur API voix: " + r.code());
+                        return;
+                    }
+                    VoiceCatalog fresh = VoiceCatalog.read(r.body().charStream(), now, r.header("ETag"));
+                    current = fresh;
+                    trimmed = false;
+                    save(fresh);
+                    callback.onCatalog(fresh, true);
+                } catch (IOException | RuntimeException e) {
+                    callback.onError("Erreur parsing voix: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void save(VoiceCatalog catalog) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            catalog.write(out);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Impossible d'écrire " + file);
+        }
+    }
+}
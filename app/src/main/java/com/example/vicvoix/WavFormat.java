@@ -0,0 +1,289 @@
+package com.example.vicvoix;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * Conteneur WAV des réponses LINEAR16 : en-tête RIFF + PCM 16 bits little-endian.
+ * {@link Extractor} sépare l'en-tête au fil de l'écriture pour livrer le PCM brut
+ * (ex. à un AudioTrack) sans fichier intermédiaire.
+ */
+public final class WavFormat {
+    public static final int HEADER_SIZE = 44;
+
+    private WavFormat() {}
+
+    /** Reçoit le PCM d'un flux WAV, une fois le format connu. */
+    public interface PcmSink {
+        void onFormat(int sampleRateHz, int channels) throws IOException;
+        void onPcm(byte[] b, int off, int len) throws IOException;
+    }
+
+    /** Position et format du PCM dans un fichier WAV. */
+    public static final class Info {
+        public final int sampleRateHz;
+        public final int channels;
+        public final long dataOffset;
+        public final long dataLength;
+
+        Info(int sampleRateHz, int channels, long dataOffset, long dataLength) {
+            this.sampleRateHz = sampleRateHz;
+            this.channels = channels;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+        }
+
+        public long bytesPerSecond() {
+            return sampleRateHz * 2L * channels;
+        }
+    }
+
+    /**
+     * Flux de sortie qui consomme l'en-tête RIFF (chunks "fmt ", "LIST"...) puis
+     * transmet le contenu du chunk "data" au {@link PcmSink}. Mémoire constante.
+     */
+    public static final class Extractor extends OutputStream {
+        private static final int RIFF = 0;
+        private static final int CHUNK_HEADER = 1;
+        private static final int FMT_BODY = 2;
+        private static final int SKIP = 3;
+        private static final int DATA = 4;
+        private static final long UNKNOWN_SIZE = 0xFFFFFFFFL;
+
+        private final PcmSink sink;
+        private final byte[] header = new byte[64];
+        private int headerLen;
+        private int need = 12;
+        private int state = RIFF;
+        private long skip;
+        private long fmtExtra;
+        private int sampleRateHz;
+        private int channels;
+        private long consumed;
+        private long dataOffset = -1;
+        private long dataSize = -1;
+        private long dataRemaining;
+
+        public Extractor(PcmSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n;
+                if (state == DATA) {
+                    // Au-delà du chunk "data" (chunks de fin éventuels) : ignoré
+                    n = (int) Math.min(len, dataRemaining);
+                    if (n > 0) sink.onPcm(b, off, n);
+                    dataRemaining -= n;
+                    n = len;
+                } else if (state == SKIP) {
+                    n = (int) Math.min(len, skip);
+                    skip -= n;
+                    if (skip == 0) nextChunk();
+                } else {
+                    n = Math.min(need - headerLen, len);
+                    System.arraycopy(b, off, header, headerLen, n);
+                    headerLen += n;
+                    if (headerLen == need) {
+                        headerLen = 0;
+                        parseHeader(consumed + n);
+                    }
+                }
+                consumed += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /** Début du PCM dans le flux, -1 tant que l'en-tête n'est pas entièrement lu. */
+        public long dataOffset() {
+            return dataOffset;
+        }
+
+        /** Taille déclarée du chunk "data", -1 si inconnue (jusqu'à la fin du flux). */
+        public long dataSize() {
+            return dataSize;
+        }
+
+        private void parseHeader(long position) throws IOException {
+            switch (state) {
+                case RIFF:
+                    if (!tagAt(0, "RIFF") || !tagAt(8, "WAVE")) throw new IOException("Flux WAV invalide");
+                    nextChunk();
+                    break;
+                case CHUNK_HEADER: {
+                    long size = le32(4);
+                    if (tagAt(0, "data")) {
+                        if (sampleRateHz == 0) throw new IOException("Chunk fmt manquant");
+                        state = DATA;
+                        dataOffset = position;
+                        // Taille 0 ou 0xFFFFFFFF : flux écrit avant de connaître sa longueur
+                        if (size != 0 && size != UNKNOWN_SIZE) dataSize = size;
+                        dataRemaining = dataSize < 0 ? Long.MAX_VALUE : size;
+                        sink.onFormat(sampleRateHz, channels);
+                    } else if (tagAt(0, "fmt ")) {
+                        if (size < 16) throw new IOException("Chunk fmt invalide");
+                        need = (int) Math.min(size, header.length);
+                        fmtExtra = size - need + (size & 1);
+                        state = FMT_BODY;
+                    } else {
+                        skip = size + (size & 1); // chunks alignés sur 2 octets
+                        if (skip > 0) state = SKIP;
+                    }
+                    break;
+                }
+                case FMT_BODY:
+                    if (le16(0) != 1 || le16(14) != 16) throw new IOException("PCM 16 bits attendu");
+                    channels = le16(2);
+                    sampleRateHz = (int) le32(4);
+                    skip = fmtExtra;
+                    if (skip > 0) {
+                        state = SKIP;
+                    } else {
+                        nextChunk();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void nextChunk() {
+            state = CHUNK_HEADER;
+            need = 8;
+        }
+
+        private boolean tagAt(int at, String tag) {
+            for (int i = 0; i < 4; i++) {
+                if (header[at + i] != tag.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        private int le16(int at) {
+            return (header[at] & 0xFF) | (header[at + 1] & 0xFF) << 8;
+        }
+
+        private long le32(int at) {
+            return (le16(at) | (long) le16(at + 2) << 16) & 0xFFFFFFFFL;
+        }
+    }
+
+    /** Lit l'en-tête d'un fichier WAV (quelques centaines d'octets au plus). */
+    public static Info readInfo(File file) throws IOException {
+        final int[] format = new int[2];
+        Extractor extractor = new Extractor(new PcmSink() {
+            @Override
+            public void onFormat(int sampleRateHz, int channels) {
+                format[0] = sampleRateHz;
+                format[1] = channels;
+            }
+
+            @Override
+            public void onPcm(byte[] b, int off, int len) {
+            }
+        });
+        byte[] buffer = new byte[512];
+        try (InputStream in = new FileInputStream(file)) {
+            int n;
+            while (extractor.dataOffset() < 0 && (n = in.read(buffer)) != -1) {
+                extractor.write(buffer, 0, n);
+            }
+        }
+        if (extractor.dataOffset() < 0) throw new IOException("Chunk data manquant: " + file.getName());
+        long offset = extractor.dataOffset();
+        // Chunks de fin (LIST, id3) exclus ; taille déclarée bornée à un fichier tronqué
+        long length = file.length() - offset;
+        if (extractor.dataSize() >= 0) length = Math.min(extractor.dataSize(), length);
+        return new Info(format[0], format[1], offset, length);
+    }
+
+    /** En-tête canonique de 44 octets. */
+    public static void writeHeader(OutputStream out, int sampleRateHz, int channels, long dataLength)
+            throws IOException {
+        int blockAlign = channels * 2;
+        byte[] h = new byte[HEADER_SIZE];
+        putTag(h, 0, "RIFF");
+        putLe32(h, 4, dataLength + HEADER_SIZE - 8);
+        putTag(h, 8, "WAVE");
+        putTag(h, 12, "fmt ");
+        putLe32(h, 16, 16);
+        putLe16(h, 20, 1);
+        putLe16(h, 22, channels);
+        putLe32(h, 24, sampleRateHz);
+        putLe32(h, 28, (long) sampleRateHz * blockAlign);
+        putLe16(h, 32, blockAlign);
+        putLe16(h, 34, 16);
+        putTag(h, 36, "data");
+        putLe32(h, 40, dataLength);
+        out.write(h);
+    }
+
+    /**
+     * Écrit les segments WAV comme un seul fichier : un en-tête puis le PCM de chacun,
+     * recopié par {@link FileChannel#transferTo} (sans passer par un tableau Java).
+     * @return nombre d'octets PCM écrits
+     */
+    public static long concat(List<File> files, WritableByteChannel out) throws IOException {
+        Info[] infos = new Info[files.size()];
+        long total = 0;
+        for (int i = 0; i < infos.length; i++) {
+            infos[i] = readInfo(files.get(i));
+            if (infos[i].sampleRateHz != infos[0].sampleRateHz || infos[i].channels != infos[0].channels) {
+                throw new IOException("Segments WAV de formats différents");
+            }
+            total += infos[i].dataLength;
+        }
+        if (infos.length == 0) return 0;
+        ByteArrayOutputStream header = new ByteArrayOutputStream(HEADER_SIZE);
+        writeHeader(header, infos[0].sampleRateHz, infos[0].channels, total);
+        ByteBuffer buffer = ByteBuffer.wrap(header.toByteArray());
+        while (buffer.hasRemaining()) out.write(buffer);
+        for (int i = 0; i < infos.length; i++) {
+            try (FileInputStream in = new FileInputStream(files.get(i))) {
+                transferFully(in.getChannel(), infos[i].dataOffset, infos[i].dataLength, out);
+            }
+        }
+        return total;
+    }
+
+    /** transferTo peut s'arrêter avant la fin (ex. vers un tube) : on boucle. */
+    static void transferFully(FileChannel in, long position, long count, WritableByteChannel out)
+            throws IOException {
+        while (count > 0) {
+            long n = in.transferTo(position, count, out);
+            if (n <= 0) throw new IOException("Fichier audio tronqué");
+            position += n;
+            count -= n;
+        }
+    }
+
+    private static void putTag(byte[] h, int at, String tag) {
+        for (int i = 0; i < 4; i++) h[at + i] = (byte) tag.charAt(i);
+    }
+
+    private static void putLe16(byte[] h, int at, int value) {
+        h[at] = (byte) value;
+        h[at + 1] = (byte) (value >> 8);
+    }
+
+    private static void putLe32(byte[] h, int at, long value) {
+        putLe16(h, at, (int) value);
+        putLe16(h, at + 2, (int) (value >> 16));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.vicvoix;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AudioContentDecoderTest {
+
+    private static byte[] randomAudio(int size) {
+        byte[] audio = new byte[size];
+        new Random(42).nextBytes(audio);
+        return audio;
+    }
+
+    private static byte[] decode(String body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = AudioContentDecoder.decode(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out);
+        assertEquals(out.size(), written);
+        return out.toByteArray();
+    }
+
+    private static void assertFails(String body) {
+        try {
+            decode(body);
+            fail("IOException attendue");
+        } catch (IOException expected) {
+            // attendu
+        }
+    }
+
+    @Test
+    public void decodesMultiMegabytePayloadByteForByte() throws IOException {
+        // Taille non multiple de 3 : le dernier quantum porte du remplissage
+        byte[] audio = randomAudio(5 * 1024 * 1024 + 1);
+        String body = "{\n  \"audioContent\": \"" + Base64.getEncoder().encodeToString(audio) + "\"\n}\n";
+        assertArrayEquals(audio, decode(body));
+    }
+
+    @Test
+    public void findsAudioContentAmongOtherFields() throws IOException {
+        byte[] audio = randomAudio(70_000);
+        String b64 = Base64.getEncoder().encodeToString(audio);
+        String before = "{\"audioContent\":\"" + b64 + "\",\"timepoints\":[],\"audioConfig\":{\"audioEncoding\":\"MP3\"}}";
+        String after = "{\"timepoints\":[{\"markName\":\"é \\\"}{[\",\"timeSeconds\":1.5}],"
+                + "\"audioConfig\":{\"speakingRate\":1,\"x\":null,\"y\":true},\"audioContent\":\"" + b64 + "\"}";
+        assertArrayEquals(audio, decode(before));
+        assertArrayEquals(audio, decode(after));
+    }
+
+    @Test
+    public void unescapesJsonEscapesInsideValue() throws IOException {
+        byte[] audio = randomAudio(30_000);
+        String b64 = Base64.getEncoder().encodeToString(audio);
+        if (b64.indexOf('/') < 0) throw new AssertionError("échantillon sans '/'");
+        assertArrayEquals(audio, decode("{\"audioContent\":\"" + b64.replace("/", "\\/") + "\"}"));
+        assertArrayEquals(audio, decode("{\"audioContent\":\"" + b64.replace("/", "\\u002F") + "\"}"));
+    }
+
+    @Test
+    public void truncatedStreamFails() {
+        String b64 = Base64.getEncoder().encodeToString(randomAudio(10_000));
+        assertFails("{\"audioContent\":\"" + b64.substring(0, 5000));
+        assertFails("{\"timepoints\":[{\"markName\":\"a");
+        assertFails("{\"audioConfig\":{}}");
+        assertFails("");
+    }
+
+    @Test
+    public void invalidBase64Fails() {
+        assertFails("{\"audioContent\":\"AAAA*AAA\"}");
+        assertFails("{\"audioContent\":\"AAAAA\"}");       // quantum d'un seul caractère
+        assertFails("{\"audioContent\":\"AA==AA\"}");      // données après le remplissage
+        assertFails("{\"audioContent\":\"AAAé\"}");
+    }
+}
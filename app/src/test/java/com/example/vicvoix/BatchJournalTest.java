@@ -0,0 +1,134 @@
+package com.example.vicvoix;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class BatchJournalTest {
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final List<BatchScript.Item> ITEMS = Arrays.asList(
+            new BatchScript.Item(0, "Bonjour.", null),
+            new BatchScript.Item(1, "Au revoir.", "fr-FR-Wavenet-C"),
+            new BatchScript.Item(2, "Merci « beaucoup ».", null));
+
+    private static void appendRaw(File dir, String text) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "progress.log"), true)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void noJournalMeansNothingToResume() throws IOException {
+        assertNull(BatchJournal.load(tmp.newFolder("lot")));
+    }
+
+    @Test
+    public void interruptedBatchIsReloaded() throws IOException {
+        File dir = tmp.newFolder("lot");
+        BatchJournal journal = BatchJournal.create(dir, ITEMS, "fr-FR-Wavenet-B", 2, "content://arbre");
+        journal.opened(0, "content://arbre/0.mp3");
+        journal.finished(0, null);
+        journal.opened(1, "content://arbre/1.mp3");
+        journal.close();
+
+        BatchJournal resumed = BatchJournal.load(dir);
+        assertNotNull(resumed);
+        assertEquals("content://arbre", resumed.destination);
+        assertEquals("fr-FR-Wavenet-B", resumed.defaultVoice);
+        assertEquals(2, resumed.parallelism);
+        assertEquals(3, resumed.items.size());
+        assertEquals("fr-FR-Wavenet-C", resumed.items.get(1).voice);
+        assertEquals("Merci « beaucoup ».", resumed.items.get(2).text);
+        assertEquals(1, resumed.doneCount());
+        assertEquals(Arrays.asList(1, 2), indexes(resumed.remaining()));
+        // Écriture peut-être incomplète : la reprise remplace ce fichier
+        assertEquals("content://arbre/1.mp3", resumed.target(1));
+    }
+
+    @Test
+    public void truncatedLastLineIsIgnoredAndRemoved() throws IOException {
+        File dir = tmp.newFolder("lot");
+        BatchJournal journal = BatchJournal.create(dir, ITEMS, null, 1, "content://arbre");
+        journal.finished(0, null);
+        journal.close();
+        appendRaw(dir, "d 1"); // arrêt au milieu de l'écriture : pas de fin de ligne
+
+        BatchJournal resumed = BatchJournal.load(dir);
+        assertNotNull(resumed);
+        assertNull(resumed.defaultVoice);
+        assertEquals(Arrays.asList(1, 2), indexes(resumed.remaining()));
+
+        // La ligne suivante ne se colle pas au morceau tronqué
+        resumed.finished(2, null);
+        resumed.close();
+        assertEquals(Arrays.asList(1), indexes(BatchJournal.load(dir).remaining()));
+    }
+
+    @Test
+    public void failedClipsAreNotRetried() throws IOException {
+        File dir = tmp.newFolder("lot");
+        BatchJournal journal = BatchJournal.create(dir, ITEMS, null, 1, "content://arbre");
+        journal.finished(1, "HTTP 400\nVoix inconnue");
+        journal.close();
+
+        BatchJournal resumed = BatchJournal.load(dir);
+        assertEquals(1, resumed.failedCount());
+        assertEquals("HTTP 400 Voix inconnue", resumed.lastError());
+        assertEquals(Arrays.asList(0, 2), indexes(resumed.remaining()));
+    }
+
+    @Test
+    public void finishedBatchIsDeleted() throws IOException {
+        File dir = tmp.newFolder("lot");
+        BatchJournal journal = BatchJournal.create(dir, ITEMS, null, 1, "content://arbre");
+        for (BatchScript.Item item : ITEMS) journal.finished(item.index, null);
+        journal.close();
+
+        assertNull(BatchJournal.load(dir));
+        assertFalse(new File(dir, "job.json").exists());
+        assertFalse(new File(dir, "progress.log").exists());
+    }
+
+    @Test
+    public void unreadableJobIsDiscarded() throws IOException {
+        File dir = tmp.newFolder("lot");
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "job.json"))) {
+            out.write("{\"items\": [".getBytes(StandardCharsets.UTF_8));
+        }
+        assertNull(BatchJournal.load(dir));
+        assertFalse(new File(dir, "job.json").exists());
+    }
+
+    @Test
+    public void newBatchReplacesThePreviousOne() throws IOException {
+        File dir = tmp.newFolder("lot");
+        BatchJournal first = BatchJournal.create(dir, ITEMS, null, 1, "content://ancien");
+        first.finished(0, null);
+        first.close();
+        BatchJournal.create(dir, ITEMS.subList(0, 2), null, 1, "content://nouveau").close();
+
+        BatchJournal resumed = BatchJournal.load(dir);
+        assertEquals("content://nouveau", resumed.destination);
+        assertEquals(Arrays.asList(0, 1), indexes(resumed.remaining()));
+    }
+
+    private static List<Integer> indexes(List<BatchScript.Item> items) {
+        Integer[] indexes = new Integer[items.size()];
+        for (int i = 0; i < indexes.length; i++) indexes[i] = items.get(i).index;
+        return Arrays.asList(indexes);
+    }
+}
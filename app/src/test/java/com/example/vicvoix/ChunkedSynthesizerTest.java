@@ -0,0 +1,104 @@
+package com.example.vicvoix;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkedSynthesizerTest {
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private final CountDownLatch received = new CountDownLatch(1);
+    private final CountDownLatch respond = new CountDownLatch(1);
+    private final byte[] audio = {4, 2, 4, 2, 4, 2};
+    private RequestScheduler scheduler;
+    private ChunkedSynthesizer synthesizer;
+
+    @Before
+    public void setUp() throws Exception {
+        // Réponse retenue jusqu'à ce que le test la libère : la requête reste en vol
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                received.countDown();
+                respond.await(5, TimeUnit.SECONDS);
+                return TtsEngineTest.audioResponse(audio);
+            }
+        });
+        server.start();
+        OkHttpClient client = new OkHttpClient();
+        AudioCache cache = new AudioCache(tmp.newFolder("cache"), 1024 * 1024);
+        cache.warmUp();
+        TtsMetrics metrics = new TtsMetrics();
+        scheduler = new RequestScheduler();
+        synthesizer = new ChunkedSynthesizer(() -> client, server.url("/v1/text:synthesize").toString(), cache,
+                metrics, new SynthesisRouter(metrics), scheduler);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        respond.countDown();
+        scheduler.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void prefetchJoinsASynchronousFetchOfTheSameSegment() throws Exception {
+        SynthesisRequest req = new SynthesisRequest("Une seule fois.", "fr-FR-Wavenet-B");
+        ByteArrayOutputStream live = new ByteArrayOutputStream();
+        CompletableFuture<File> playing = CompletableFuture.supplyAsync(() -> {
+            try {
+                return synthesizer.fetch(req, live);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+
+        // Appel synchrone en vol (sans ticket d'ordonnanceur) : la pré-synthèse l'attend
+        ChunkedSynthesizer.Prefetch prefetch = synthesizer.prefetch(req);
+        respond.countDown();
+
+        File played = playing.get(5, TimeUnit.SECONDS);
+        assertEquals(played, prefetch.future.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(audio, Files.readAllBytes(played.toPath()));
+        assertArrayEquals(audio, live.toByteArray());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void playbackPromotesAQueuedPrefetch() throws Exception {
+        respond.countDown();
+        // Places des lots toutes prises : la pré-synthèse reste en file d'arrière-plan
+        for (int i = 0; i < 3; i++) scheduler.acquire(RequestScheduler.Lane.DOWNLOAD, 10);
+        SynthesisRequest req = new SynthesisRequest("Lue tout de suite.", "fr-FR-Wavenet-B");
+        ChunkedSynthesizer.Prefetch prefetch = synthesizer.prefetch(req);
+        assertEquals(1, scheduler.stats().queued[RequestScheduler.Lane.BACKGROUND.ordinal()]);
+
+        ByteArrayOutputStream live = new ByteArrayOutputStream();
+        File played = synthesizer.fetch(req, live);
+        assertEquals(played, prefetch.future.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(audio, live.toByteArray());
+        assertEquals(1, server.getRequestCount());
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.vicvoix;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ClipComposerTest {
+    // MPEG-1 Layer III, 128 kbit/s, 44,1 kHz, stéréo, sans remplissage : 417 octets
+    private static final byte[] FRAME_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x64};
+    private static final int FRAME_LENGTH = 417;
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private File file(String name, byte[] content) throws IOException {
+        File f = tmp.newFile(name);
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(content);
+        }
+        return f;
+    }
+
+    private static byte[] compose(String encoding, long silenceMs, File... clips) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = ClipComposer.compose(Arrays.asList(clips), encoding, silenceMs, Channels.newChannel(out));
+        assertEquals(out.size(), written);
+        return out.toByteArray();
+    }
+
+    private static byte[] mp3Frames(int count, int seed) {
+        byte[] frames = new byte[count * FRAME_LENGTH];
+        for (int f = 0; f < count; f++) {
+            int at = f * FRAME_LENGTH;
+            System.arraycopy(FRAME_HEADER, 0, frames, at, 4);
+            for (int i = 4; i < FRAME_LENGTH; i++) frames[at + i] = (byte) (seed + i & 0x7F);
+        }
+        return frames;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] p : parts) out.write(p, 0, p.length);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void wavClipsAreJoinedWithSilence() throws IOException {
+        byte[] a = WavFormatTest.pcm(2400, 1);
+        byte[] b = WavFormatTest.pcm(4800, 2);
+        File fa = file("a.wav", WavFormatTest.wavWithTrailer(24000, a));
+        File fb = file("b.wav", WavFormatTest.wavWithExtraChunks(24000, b));
+
+        // Chunk de fin de a exclu ; 250 ms à 24 kHz mono 16 bits : 12 000 octets nuls
+        byte[] expected = WavFormatTest.wav(24000, 1, concat(a, new byte[12000], b));
+        assertArrayEquals(expected, compose(SynthesisRequest.ENCODING_LINEAR16, 250, fa, fb));
+    }
+
+    @Test
+    public void wavClipsOfDifferentRatesAreRefused() throws IOException {
+        File fa = file("a.wav", WavFormatTest.wav(24000, 1, new byte[10]));
+        File fb = file("b.wav", WavFormatTest.wav(16000, 1, new byte[10]));
+        try {
+            compose(SynthesisRequest.ENCODING_LINEAR16, 0, fa, fb);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void oggWithSilenceIsRefused() throws IOException {
+        File fa = file("a.ogg", "OggS".getBytes("US-ASCII"));
+        try {
+            compose(SynthesisRequest.ENCODING_OGG_OPUS, 500, fa, fa);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void mp3TagsAreDroppedAndSilentFramesInserted() throws IOException {
+        byte[] a = mp3Frames(3, 1);
+        byte[] b = mp3Frames(2, 2);
+        byte[] id3v2 = {'I', 'D', '3', 4, 0, 0, 0, 0, 0, 5, 1, 2, 3, 4, 5};
+        byte[] id3v1 = new byte[128];
+        id3v1[0] = 'T';
+        id3v1[1] = 'A';
+        id3v1[2] = 'G';
+        File fa = file("a.mp3", concat(id3v2, a, id3v1));
+        File fb = file("b.mp3", b);
+
+        byte[] out = compose(SynthesisRequest.ENCODING_MP3, 1000, fa, fb);
+        // 1 s à 44,1 kHz : 39 trames de 1152 échantillons
+        int silentFrames = 39;
+        assertEquals(a.length + silentFrames * FRAME_LENGTH + b.length, out.length);
+        assertArrayEquals(a, Arrays.copyOfRange(out, 0, a.length));
+        assertArrayEquals(b, Arrays.copyOfRange(out, out.length - b.length, out.length));
+        for (int f = 0; f < silentFrames; f++) {
+            int at = a.length + f * FRAME_LENGTH;
+            assertEquals((byte) 0xFF, out[at]);
+            assertEquals((byte) 0xFB, out[at + 1]);
+            assertEquals(0, out[at + 4]);
+        }
+    }
+
+    @Test
+    public void mp3FrameHeaderIsParsed() {
+        ClipComposer.Mp3Frame frame = ClipComposer.Mp3Frame.parse(FRAME_HEADER, 0);
+        assertNotNull(frame);
+        assertEquals(44100, frame.sampleRateHz);
+        assertEquals(1152, frame.samplesPerFrame);
+        assertEquals(FRAME_LENGTH, frame.length);
+        assertEquals(FRAME_LENGTH, frame.silentFrame().length);
+        assertNull(ClipComposer.Mp3Frame.parse(new byte[]{'I', 'D', '3', 4}, 0));
+        // Débit "libre" (index 0) : refusé
+        assertNull(ClipComposer.Mp3Frame.parse(new byte[]{(byte) 0xFF, (byte) 0xFB, 0x00, 0x64}, 0));
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.vicvoix;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestSchedulerTest {
+    private RequestScheduler scheduler = new RequestScheduler();
+    // Essais lancés, dans l'ordre ; chacun reste en cours jusqu'à ce que le test le termine
+    private final List<String> started = new ArrayList<>();
+    private final List<RequestScheduler.Attempt<String>> attempts = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    private RequestScheduler.Ticket<String> submit(RequestScheduler.Lane lane, String name) {
+        return scheduler.submit(lane, 10, attempt -> {
+            synchronized (this) {
+                started.add(name);
+                attempts.add(attempt);
+            }
+            return null;
+        });
+    }
+
+    private synchronized List<String> started() {
+        return new ArrayList<>(started);
+    }
+
+    private synchronized RequestScheduler.Attempt<String> attempt(int i) {
+        return attempts.get(i);
+    }
+
+    private static IOException failure(RequestScheduler.Ticket<?> ticket) throws Exception {
+        try {
+            ticket.future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return (IOException) e.getCause();
+        }
+        fail("échec attendu");
+        return null;
+    }
+
+    @Test
+    public void higherLanesStartFirst() {
+        // Concurrence initiale 4 : trois places hors lecture, la dernière reste à la lecture
+        for (int i = 0; i < 3; i++) submit(RequestScheduler.Lane.BACKGROUND, "fond" + i);
+        submit(RequestScheduler.Lane.BACKGROUND, "fond3");
+        submit(RequestScheduler.Lane.DOWNLOAD, "téléch");
+        submit(RequestScheduler.Lane.INTERACTIVE, "lecture");
+        assertEquals(4, started().size());
+        assertEquals("lecture", started().get(3));
+
+        // La lecture occupe une place : il faut deux fins d'appel pour rouvrir une place hors lecture
+        attempt(0).succeed("ok");
+        assertEquals(4, started().size());
+        attempt(1).succeed("ok");
+        assertEquals("téléch", started().get(4));
+        attempt(2).succeed("ok");
+        assertEquals("fond3", started().get(5));
+    }
+
+    @Test
+    public void promotedTicketJumpsTheQueue() {
+        for (int i = 0; i < 3; i++) submit(RequestScheduler.Lane.DOWNLOAD, "lot" + i);
+        submit(RequestScheduler.Lane.DOWNLOAD, "lot3");
+        RequestScheduler.Ticket<String> prefetch = submit(RequestScheduler.Lane.BACKGROUND, "pré");
+        assertEquals(3, started().size());
+
+        prefetch.promote(RequestScheduler.Lane.INTERACTIVE);
+        assertEquals("pré", started().get(3));
+    }
+
+    @Test
+    public void retriesAfterRetryAfterAndHalvesConcurrency() throws Exception {
+        RequestScheduler.Ticket<String> ticket = submit(RequestScheduler.Lane.DOWNLOAD, "a");
+        attempt(0).fail(new TtsApiException(503, 100));
+        RequestScheduler.Stats stats = scheduler.stats();
+        assertEquals(2.0, stats.concurrency, 0.001);
+        assertEquals(1, stats.retries);
+        assertTrue(stats.pausedMs > 0);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (started().size() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(2, started().size());
+        attempt(1).succeed("ok");
+        assertEquals("ok", ticket.future.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() throws Exception {
+        RequestScheduler.Ticket<String> ticket = submit(RequestScheduler.Lane.DOWNLOAD, "a");
+        TtsApiException badRequest = new TtsApiException(400, -1);
+        attempt(0).fail(badRequest);
+        assertEquals(badRequest, failure(ticket));
+        assertEquals(1, started().size());
+        assertEquals(0, scheduler.stats().retries);
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() throws Exception {
+        RequestScheduler.Ticket<String> ticket = submit(RequestScheduler.Lane.DOWNLOAD, "a");
+        for (int i = 0; i < RequestScheduler.MAX_ATTEMPTS; i++) {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (started().size() <= i && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            attempt(i).fail(new TtsApiException(500, 50));
+        }
+        assertEquals(500, ((TtsApiException) failure(ticket)).code);
+        assertEquals(RequestScheduler.MAX_ATTEMPTS, started().size());
+    }
+
+    @Test
+    public void cancellingAQueuedTicketNeverStartsIt() throws Exception {
+        for (int i = 0; i < 3; i++) submit(RequestScheduler.Lane.BACKGROUND, "fond" + i);
+        RequestScheduler.Ticket<String> queued = submit(RequestScheduler.Lane.BACKGROUND, "annulé");
+        queued.cancel();
+        assertTrue(failure(queued) instanceof InterruptedIOException);
+
+        attempt(0).succeed("ok");
+        assertFalse(started().contains("annulé"));
+        assertEquals(0, scheduler.stats().queued[RequestScheduler.Lane.BACKGROUND.ordinal()]);
+    }
+
+    @Test
+    public void requestQuotaThrottlesAdmission() {
+        scheduler.shutdown();
+        scheduler = new RequestScheduler(2, 100_000);
+        submit(RequestScheduler.Lane.INTERACTIVE, "a");
+        submit(RequestScheduler.Lane.INTERACTIVE, "b");
+        submit(RequestScheduler.Lane.INTERACTIVE, "c");
+        // Seau de 2 requêtes/min vidé : la troisième attend un jeton (~30 s), même avec des places libres
+        attempt(0).succeed("ok");
+        attempt(1).succeed("ok");
+        assertEquals(2, started().size());
+        RequestScheduler.Stats stats = scheduler.stats();
+        assertEquals(1, stats.throttled);
+        assertEquals(1, stats.queued[RequestScheduler.Lane.INTERACTIVE.ordinal()]);
+    }
+
+    @Test
+    public void interactiveKeepsASlotAfterConcurrencyDrops() {
+        for (int i = 0; i < 3; i++) submit(RequestScheduler.Lane.BACKGROUND, "fond" + i);
+        // 503 sur le premier : concurrence 4 -> 2, alors que deux appels de fond tournent encore
+        attempt(0).fail(new TtsApiException(503, -1));
+        assertEquals(2.0, scheduler.stats().concurrency, 0.001);
+
+        submit(RequestScheduler.Lane.INTERACTIVE, "lecture");
+        assertEquals("lecture", started().get(3));
+        // Une seule place garantie : la lecture suivante attend la fin de la première
+        submit(RequestScheduler.Lane.INTERACTIVE, "lecture2");
+        attempt(1).succeed("ok");
+        assertEquals(4, started().size());
+        attempt(3).succeed("ok");
+        assertEquals("lecture2", started().get(4));
+    }
+
+    @Test
+    public void acquireAdmitsSynchronousCalls() throws Exception {
+        RequestScheduler.Attempt<String> attempt = scheduler.acquire(RequestScheduler.Lane.INTERACTIVE, 10);
+        assertEquals(1, scheduler.stats().running);
+        attempt.succeed("ok");
+        assertEquals(0, scheduler.stats().running);
+    }
+
+    @Test
+    public void shutdownWakesAQueuedSynchronousCall() throws Exception {
+        for (int i = 0; i < 4; i++) scheduler.acquire(RequestScheduler.Lane.INTERACTIVE, 10);
+        CompletableFuture<Throwable> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                scheduler.acquire(RequestScheduler.Lane.INTERACTIVE, 10);
+                return null;
+            } catch (IOException e) {
+                return e;
+            }
+        });
+        while (scheduler.stats().queued[RequestScheduler.Lane.INTERACTIVE.ordinal()] == 0) Thread.sleep(5);
+
+        scheduler.shutdown();
+        assertTrue(waiting.get(5, TimeUnit.SECONDS) instanceof InterruptedIOException);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.vicvoix;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SegmentDiffTest {
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private AudioCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = new AudioCache(tmp.newFolder("cache"), 1024 * 1024);
+        cache.warmUp();
+    }
+
+    private static List<SynthesisRequest> requests(String... texts) {
+        List<SynthesisRequest> list = new ArrayList<>();
+        for (String t : texts) list.add(new SynthesisRequest(t, "fr-FR-Wavenet-B"));
+        return list;
+    }
+
+    private static List<String> keys(List<SynthesisRequest> requests) {
+        List<String> keys = new ArrayList<>();
+        for (SynthesisRequest r : requests) keys.add(r.cacheKey());
+        return keys;
+    }
+
+    private void cacheAll(List<SynthesisRequest> requests) throws IOException {
+        for (SynthesisRequest r : requests) {
+            File tmpFile = cache.newTempFile(r.cacheKey());
+            try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                out.write(1);
+            }
+            cache.commit(r.cacheKey(), tmpFile);
+        }
+    }
+
+    @Test
+    public void firstDocumentIsEntirelyNew() {
+        SegmentDiff diff = SegmentDiff.compute(Collections.<String>emptyList(), requests("Un.", "Deux."), cache);
+        assertEquals(2, diff.total);
+        assertEquals(2, diff.changed);
+        assertEquals(2, diff.toSynthesize);
+    }
+
+    @Test
+    public void onlyTheEditedSentenceIsSynthesizedAgain() throws IOException {
+        List<SynthesisRequest> before = requests("Un.", "Deux.", "Trois.");
+        cacheAll(before);
+        SegmentDiff diff = SegmentDiff.compute(keys(before), requests("Un.", "Deux modifié.", "Trois."), cache);
+        assertEquals(3, diff.total);
+        assertEquals(1, diff.changed);
+        assertEquals(1, diff.toSynthesize);
+    }
+
+    @Test
+    public void repeatedSentenceCountsOnlyAsOftenAsBefore() throws IOException {
+        List<SynthesisRequest> before = requests("Oui.", "Non.");
+        cacheAll(before);
+        SegmentDiff diff = SegmentDiff.compute(keys(before), requests("Oui.", "Oui.", "Non."), cache);
+        assertEquals(1, diff.changed);
+        // Même audio : la répétition est déjà en cache
+        assertEquals(0, diff.toSynthesize);
+    }
+
+    @Test
+    public void voiceChangeInvalidatesEverySegment() throws IOException {
+        List<SynthesisRequest> before = requests("Un.", "Deux.");
+        cacheAll(before);
+        List<SynthesisRequest> otherVoice = Arrays.asList(
+                new SynthesisRequest("Un.", "fr-FR-Wavenet-C"), new SynthesisRequest("Deux.", "fr-FR-Wavenet-C"));
+        SegmentDiff diff = SegmentDiff.compute(keys(before), otherVoice, cache);
+        assertEquals(2, diff.changed);
+        assertEquals(2, diff.toSynthesize);
+    }
+}
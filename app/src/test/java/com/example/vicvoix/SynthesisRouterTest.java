@@ -0,0 +1,100 @@
+package com.example.vicvoix;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SynthesisRouterTest {
+    private final SynthesisRouter router = new SynthesisRouter(new TtsMetrics());
+    private final FakeLocal local = new FakeLocal();
+    private boolean online = true;
+
+    /** Moteur local dont le test règle chaque synthèse à la main. */
+    private static final class FakeLocal implements SynthesisRouter.LocalSynthesizer {
+        final List<CompletableFuture<File>> started = new ArrayList<>();
+        final List<File> released = new ArrayList<>();
+
+        @Override
+        public boolean isAvailable(String languageCode) {
+            return true;
+        }
+
+        @Override
+        public synchronized CompletableFuture<File> synthesize(SynthesisRequest request) {
+            CompletableFuture<File> future = new CompletableFuture<>();
+            started.add(future);
+            return future;
+        }
+
+        @Override
+        public synchronized void release(File audio) {
+            released.add(audio);
+        }
+    }
+
+    public SynthesisRouterTest() {
+        router.setLocal(local, () -> online);
+    }
+
+    @After
+    public void tearDown() {
+        router.shutdown();
+    }
+
+    private static SynthesisRequest request(int chars) {
+        char[] text = new char[chars];
+        Arrays.fill(text, 'a');
+        return new SynthesisRequest(new String(text), "fr-FR-Wavenet-B");
+    }
+
+    @Test
+    public void routesOnPredictedLatency() {
+        assertEquals(SynthesisRouter.Route.CLOUD, router.decide(request(50)));
+        router.recordCloud(50, TimeUnit.SECONDS.toNanos(3));
+        assertEquals(SynthesisRouter.Route.LOCAL, router.decide(request(50)));
+        assertEquals(SynthesisRouter.Route.RACE, router.decide(request(SynthesisRouter.RACE_MIN_CHARS)));
+        online = false;
+        assertEquals(SynthesisRouter.Route.LOCAL, router.decide(request(SynthesisRouter.RACE_MIN_CHARS)));
+        router.setBudgetMs(SynthesisRouter.CLOUD_ONLY);
+        assertEquals(SynthesisRouter.Route.CLOUD, router.decide(request(50)));
+    }
+
+    @Test
+    public void localFileLosingTheRaceIsReleased() throws Exception {
+        router.recordCloud(SynthesisRouter.RACE_MIN_CHARS, TimeUnit.SECONDS.toNanos(3));
+        CompletableFuture<File> cloud = new CompletableFuture<>();
+        CompletableFuture<File> result = router.route(request(SynthesisRouter.RACE_MIN_CHARS), () -> cloud);
+        assertEquals(1, local.started.size());
+
+        File cloudFile = new File("cache/cloud.mp3");
+        File localFile = new File("device_tts/local.wav");
+        cloud.complete(cloudFile);
+        local.started.get(0).complete(localFile);
+
+        assertEquals(cloudFile, result.get(1, TimeUnit.SECONDS));
+        assertEquals(1, local.released.size());
+        assertEquals(localFile, local.released.get(0));
+    }
+
+    @Test
+    public void winningLocalFileIsKept() throws Exception {
+        router.recordCloud(SynthesisRouter.RACE_MIN_CHARS, TimeUnit.SECONDS.toNanos(3));
+        CompletableFuture<File> cloud = new CompletableFuture<>();
+        CompletableFuture<File> result = router.route(request(SynthesisRouter.RACE_MIN_CHARS), () -> cloud);
+        File localFile = new File("device_tts/local.wav");
+        local.started.get(0).complete(localFile);
+        cloud.complete(new File("cache/cloud.mp3"));
+
+        assertEquals(localFile, result.get(1, TimeUnit.SECONDS));
+        assertTrue(local.released.isEmpty());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.vicvoix;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TextSegmenterTest {
+
+    @Test
+    public void splitsOnSentencesAndLines() {
+        assertEquals(Arrays.asList("Bonjour.", "Comment allez-vous ?!", "Très bien…", "Ligne seule", "Fin"),
+                TextSegmenter.split("Bonjour. Comment allez-vous ?! Très bien… Ligne seule\nFin"));
+    }
+
+    @Test
+    public void keepsClosingQuotesWithTheirSentence() {
+        assertEquals(Arrays.asList("Il a dit « Oui ! »", "(Vraiment.)", "\"Non.\"", "Puis rien"),
+                TextSegmenter.split("Il a dit « Oui ! » (Vraiment.) \"Non.\" Puis rien"));
+    }
+
+    @Test
+    public void doesNotSplitInsideNumbersOrUrls() {
+        assertEquals(Collections.singletonList("Version 3.14 sur example.com aujourd'hui."),
+                TextSegmenter.split("Version 3.14 sur example.com aujourd'hui."));
+    }
+
+    @Test
+    public void emptyAndBlankTextGiveNoSegment() {
+        assertTrue(TextSegmenter.split(null).isEmpty());
+        assertTrue(TextSegmenter.split("  \n\n ").isEmpty());
+    }
+
+    @Test
+    public void longSentenceIsSplitOnClausesThenSpaces() {
+        assertEquals(Arrays.asList("un deux,", "trois quatre;", "cinq six sept"),
+                TextSegmenter.split("un deux, trois quatre; cinq six sept", 14));
+        assertEquals(Arrays.asList("aaaa bbbb", "cccc dddd", "eeee"),
+                TextSegmenter.split("aaaa bbbb cccc dddd eeee", 10));
+        // Mot plus long que la limite : coupe franche
+        assertEquals(Arrays.asList("abcdefghij", "klm"), TextSegmenter.split("abcdefghijklm", 10));
+    }
+
+    @Test
+    public void segmentsNeverExceedTheLimit() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) sb.append("mot").append(i % 7 == 0 ? ", " : " ");
+        for (String segment : TextSegmenter.split(sb.toString())) {
+            assertTrue(segment.length() <= TextSegmenter.MAX_SEGMENT_CHARS);
+        }
+    }
+
+    @Test
+    public void editingOneSentenceKeepsTheOthers() {
+        List<String> before = TextSegmenter.split("Un. Deux trois. Quatre.");
+        List<String> after = TextSegmenter.split("Un. Deux trois modifié. Quatre.");
+        assertEquals(before.get(0), after.get(0));
+        assertEquals(before.get(2), after.get(2));
+    }
+
+    @Test
+    public void finishedLengthStopsBeforeTheSentenceBeingTyped() {
+        assertEquals(0, TextSegmenter.finishedLength("Bonjour"));
+        // Point final sans blanc : peut-être une abréviation en cours ("Dr." -> "Dr. Martin")
+        assertEquals(0, TextSegmenter.finishedLength("Bonjour."));
+        String text = "Bonjour. Voici le Dr";
+        int n = TextSegmenter.finishedLength(text);
+        assertEquals("Bonjour.", text.substring(0, n));
+        assertEquals(TextSegmenter.split(text.substring(0, n)), TextSegmenter.split(text).subList(0, 1));
+        assertEquals("Un\nDeux", "Un\nDeux\nTr".substring(0, TextSegmenter.finishedLength("Un\nDeux\nTr")));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.vicvoix;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TtsApiExceptionTest {
+
+    private static TtsApiException from(int code, String retryAfter) {
+        Response.Builder response = new Response.Builder()
+                .request(new Request.Builder().url("https://example.com/v1/text:synthesize").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("");
+        if (retryAfter != null) response.header("Retry-After", retryAfter);
+        return TtsApiException.from(response.build());
+    }
+
+    private static String httpDate(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(millis));
+    }
+
+    @Test
+    public void readsRetryAfterInSeconds() {
+        assertEquals(30_000, from(429, "30").retryAfterMs);
+        assertEquals(-1, from(429, null).retryAfterMs);
+        assertEquals(-1, from(503, "plus tard").retryAfterMs);
+    }
+
+    @Test
+    public void readsRetryAfterAsHttpDate() {
+        long delay = from(503, httpDate(System.currentTimeMillis() + 120_000)).retryAfterMs;
+        // Date HTTP à la seconde près
+        assertTrue(delay > 115_000 && delay <= 120_000);
+        assertEquals(0, from(503, httpDate(0)).retryAfterMs);
+    }
+
+    @Test
+    public void onlyThrottlingAndServerErrorsAreRetryable() {
+        assertTrue(from(429, null).isRetryable());
+        assertTrue(from(503, null).isRetryable());
+        assertFalse(from(400, null).isRetryable());
+        assertFalse(from(403, null).isRetryable());
+    }
+}
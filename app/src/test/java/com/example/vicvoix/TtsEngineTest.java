@@ -0,0 +1,161 @@
+package com.example.vicvoix;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** Moteur complet, sans Android, contre un serveur HTTP simulé. */
+public class TtsEngineTest {
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private TtsEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        server.start();
+        engine = new TtsEngine(new OkHttpClient(), server.url("/v1/").toString(), "cle",
+                tmp.newFolder("cache"), tmp.newFolder("files"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        engine.shutdown();
+        server.shutdown();
+    }
+
+    static MockResponse audioResponse(byte[] audio) {
+        return new MockResponse().setBody("{\"audioContent\":\"" + Base64.getEncoder().encodeToString(audio) + "\"}");
+    }
+
+    @Test
+    public void synthesizesOnceThenServesFromCache() throws Exception {
+        byte[] audio = {1, 2, 3, 4, 5};
+        server.enqueue(audioResponse(audio));
+        SynthesisRequest req = new SynthesisRequest("Bonjour à tous.", "fr-FR-Wavenet-B");
+
+        File first = engine.synthesizeToFile(req).get(5, TimeUnit.SECONDS);
+        assertArrayEquals(audio, Files.readAllBytes(first.toPath()));
+        RecordedRequest sent = server.takeRequest();
+        assertEquals("/v1/text:synthesize?key=cle", sent.getPath());
+        assertEquals(req.toJson(), sent.getBody().readUtf8());
+
+        File second = engine.synthesizeToFile(req).get(5, TimeUnit.SECONDS);
+        assertEquals(first, second);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void retriesTransientErrors() throws Exception {
+        byte[] audio = {9, 8, 7};
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(audioResponse(audio));
+
+        File file = engine.synthesizeToFile(new SynthesisRequest("Encore.", "fr-FR-Wavenet-B"))
+                .get(10, TimeUnit.SECONDS);
+        assertArrayEquals(audio, Files.readAllBytes(file.toPath()));
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, engine.scheduler().stats().retries);
+    }
+
+    @Test
+    public void refreshesVoicesConditionally() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("{\"voices\":["
+                + "{\"name\":\"fr-FR-Wavenet-B\",\"languageCodes\":[\"fr-FR\"],\"ssmlGender\":\"MALE\","
+                + "\"naturalSampleRateHertz\":24000}]}"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        assertTrue(engine.refreshVoices().get(5, TimeUnit.SECONDS));
+        assertEquals(1, engine.voiceCatalog().voices.size());
+        assertEquals("/v1/voices?key=cle", server.takeRequest().getPath());
+
+        assertFalse(engine.refreshVoices().get(5, TimeUnit.SECONDS));
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        assertEquals(1, engine.voiceCatalog().voices.size());
+        assertFalse(engine.isVoiceCatalogStale());
+    }
+
+    @Test
+    public void trimmedCatalogIsReloadedOffTheCallingThread() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"voices\":[{\"name\":\"fr-FR-Wavenet-B\","
+                + "\"languageCodes\":[\"fr-FR\"]}]}"));
+        assertTrue(engine.refreshVoices().get(5, TimeUnit.SECONDS));
+
+        engine.trimMemory(TtsEngine.MemoryPressure.BACKGROUND);
+        // Pas de lecture disque ici : catalogue vide, relu en arrière-plan
+        assertTrue(engine.voiceCatalog().isEmpty());
+        assertFalse(engine.isVoiceCatalogStale());
+        // Même exécuteur, donc après la relecture lancée ci-dessus
+        assertEquals(1, engine.loadVoiceCatalog().get(5, TimeUnit.SECONDS).voices.size());
+        assertEquals(1, engine.voiceCatalog().voices.size());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void batchIsJournaledThenForgottenOnceComplete() throws Exception {
+        server.enqueue(audioResponse(new byte[]{1, 1}));
+        server.enqueue(audioResponse(new byte[]{2, 2}));
+        Map<String, ByteArrayOutputStream> written = new ConcurrentHashMap<>();
+        BatchSynthesisQueue.Sink sink = new BatchSynthesisQueue.Sink() {
+            @Override
+            public String create(BatchScript.Item item) {
+                return "clip" + item.index;
+            }
+
+            @Override
+            public OutputStream open(String target) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                written.put(target, out);
+                return out;
+            }
+
+            @Override
+            public void discard(String target) {
+                written.remove(target);
+            }
+        };
+        CompletableFuture<BatchSynthesisQueue.Progress> finished = new CompletableFuture<>();
+        engine.startBatch(Arrays.asList(new BatchScript.Item(0, "Un.", null), new BatchScript.Item(1, "Deux.", null)),
+                "fr-FR-Wavenet-B", 1, "content://arbre", sink, new BatchSynthesisQueue.Listener() {
+                    @Override
+                    public void onProgress(BatchSynthesisQueue.Progress progress) {
+                    }
+
+                    @Override
+                    public void onFinished(BatchSynthesisQueue.Progress progress) {
+                        finished.complete(progress);
+                    }
+                });
+
+        BatchSynthesisQueue.Progress progress = finished.get(10, TimeUnit.SECONDS);
+        assertEquals(2, progress.done);
+        assertEquals(0, progress.failed);
+        assertEquals(2, written.size());
+        assertNull(engine.pendingBatch().get(5, TimeUnit.SECONDS));
+    }
+}
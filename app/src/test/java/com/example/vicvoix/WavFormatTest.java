@@ -0,0 +1,168 @@
+package com.example.vicvoix;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class WavFormatTest {
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    /** WAV canonique de 44 octets d'en-tête. */
+    static byte[] wav(int sampleRateHz, int channels, byte[] pcm) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WavFormat.writeHeader(out, sampleRateHz, channels, pcm.length);
+        out.write(pcm);
+        return out.toByteArray();
+    }
+
+    /** Même fichier, avec un chunk fmt étendu et un chunk LIST de taille impaire avant les données. */
+    static byte[] wavWithExtraChunks(int sampleRateHz, byte[] pcm) throws IOException {
+        byte[] canonical = wav(sampleRateHz, 1, pcm);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(canonical, 0, 12);
+        out.write(new byte[]{'f', 'm', 't', ' ', 18, 0, 0, 0});
+        out.write(canonical, 20, 16);
+        out.write(new byte[]{0, 0});
+        out.write(new byte[]{'L', 'I', 'S', 'T', 3, 0, 0, 0, 'a', 'b', 'c', 0});
+        out.write(canonical, 36, canonical.length - 36);
+        return out.toByteArray();
+    }
+
+    /** Chunk LIST après les données (ajouté par certains éditeurs). */
+    static byte[] wavWithTrailer(int sampleRateHz, byte[] pcm) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(wav(sampleRateHz, 1, pcm));
+        out.write(new byte[]{'L', 'I', 'S', 'T', 4, 0, 0, 0, 'I', 'N', 'F', 'O'});
+        return out.toByteArray();
+    }
+
+    static byte[] pcm(int length, int seed) {
+        byte[] pcm = new byte[length];
+        for (int i = 0; i < length; i++) pcm[i] = (byte) (i * 31 + seed);
+        return pcm;
+    }
+
+    private File file(String name, byte[] content) throws IOException {
+        File f = tmp.newFile(name);
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(content);
+        }
+        return f;
+    }
+
+    private static final class Collector implements WavFormat.PcmSink {
+        int sampleRateHz;
+        int channels;
+        final ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+
+        @Override
+        public void onFormat(int sampleRateHz, int channels) {
+            this.sampleRateHz = sampleRateHz;
+            this.channels = channels;
+        }
+
+        @Override
+        public void onPcm(byte[] b, int off, int len) {
+            pcm.write(b, off, len);
+        }
+    }
+
+    @Test
+    public void extractorSkipsHeaderWhateverTheWriteSizes() throws IOException {
+        byte[] pcm = pcm(10_000, 7);
+        byte[] wav = wavWithExtraChunks(24000, pcm);
+        for (int step : new int[]{1, 3, 44, 4096, wav.length}) {
+            Collector sink = new Collector();
+            WavFormat.Extractor extractor = new WavFormat.Extractor(sink);
+            for (int off = 0; off < wav.length; off += step) {
+                extractor.write(wav, off, Math.min(step, wav.length - off));
+            }
+            assertEquals(24000, sink.sampleRateHz);
+            assertEquals(1, sink.channels);
+            assertEquals(wav.length - pcm.length, extractor.dataOffset());
+            assertArrayEquals("écritures de " + step + " octets", pcm, sink.pcm.toByteArray());
+        }
+    }
+
+    @Test
+    public void extractorRejectsNonWavAndNonPcm16() throws IOException {
+        try {
+            new WavFormat.Extractor(new Collector()).write("ID3 pas un WAV".getBytes("UTF-8"));
+            fail();
+        } catch (IOException expected) {
+        }
+        byte[] wav = wav(24000, 1, pcm(8, 0));
+        wav[34] = 8; // 8 bits par échantillon
+        try {
+            new WavFormat.Extractor(new Collector()).write(wav);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void readInfoLocatesData() throws IOException {
+        byte[] pcm = pcm(4800, 1);
+        WavFormat.Info info = WavFormat.readInfo(file("a.wav", wavWithExtraChunks(16000, pcm)));
+        assertEquals(16000, info.sampleRateHz);
+        assertEquals(1, info.channels);
+        assertEquals(pcm.length, info.dataLength);
+        assertEquals(32000, info.bytesPerSecond());
+    }
+
+    @Test
+    public void readInfoUsesTheDeclaredDataSize() throws IOException {
+        byte[] pcm = pcm(4800, 3);
+        assertEquals(pcm.length, WavFormat.readInfo(file("fin.wav", wavWithTrailer(16000, pcm))).dataLength);
+
+        // Fichier tronqué : la taille déclarée est bornée à ce qui reste
+        byte[] truncated = Arrays.copyOf(wav(16000, 1, pcm), WavFormat.HEADER_SIZE + 1000);
+        assertEquals(1000, WavFormat.readInfo(file("court.wav", truncated)).dataLength);
+
+        // Taille inconnue (flux) : jusqu'à la fin du fichier
+        byte[] streamed = wav(16000, 1, pcm);
+        Arrays.fill(streamed, 40, 44, (byte) 0xFF);
+        assertEquals(pcm.length, WavFormat.readInfo(file("flux.wav", streamed)).dataLength);
+    }
+
+    @Test
+    public void concatWritesOneHeaderThenEveryPcm() throws IOException {
+        byte[] a = pcm(1000, 1);
+        byte[] b = pcm(3000, 2);
+        File fa = file("a.wav", wav(24000, 1, a));
+        File fb = file("b.wav", wavWithExtraChunks(24000, b));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(4000, WavFormat.concat(Arrays.asList(fa, fb), Channels.newChannel(out)));
+
+        byte[] both = new byte[4000];
+        System.arraycopy(a, 0, both, 0, 1000);
+        System.arraycopy(b, 0, both, 1000, 3000);
+        assertArrayEquals(wav(24000, 1, both), out.toByteArray());
+    }
+
+    @Test
+    public void concatRefusesMixedFormats() throws IOException {
+        File fa = file("a.wav", wav(24000, 1, pcm(10, 0)));
+        File fb = file("b.wav", wav(22050, 1, pcm(10, 0)));
+        try {
+            WavFormat.concat(Arrays.asList(fa, fb), Channels.newChannel(new ByteArrayOutputStream()));
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(0, WavFormat.concat(Collections.<File>emptyList(),
+                Channels.newChannel(new ByteArrayOutputStream())));
+    }
+}
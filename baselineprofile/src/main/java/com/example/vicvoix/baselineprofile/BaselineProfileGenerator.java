@@ -0,0 +1,30 @@
+package com.example.vicvoix.baselineprofile;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * Génère le profil de référence de :app : démarrage jusqu'aux voix affichées, puis un premier « Générer ».
+ * Lancer avec ./gradlew :app:generateBaselineProfile ; le profil est copié dans app/src/release/generated.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+    @Rule
+    public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        rule.collect(Flows.PACKAGE, scope -> {
+            scope.pressHome();
+            scope.startActivityAndWait();
+            Flows.typeAndGenerate(scope);
+            return Unit.INSTANCE;
+        });
+    }
+}
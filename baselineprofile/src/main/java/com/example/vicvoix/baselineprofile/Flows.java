@@ -0,0 +1,27 @@
+package com.example.vicvoix.baselineprofile;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+/** Parcours utilisateur communs au profil et aux mesures. */
+final class Flows {
+    static final String PACKAGE = "com.example.vicvoix";
+    /** Même nom que MainActivity.TRACE_GENERATE. */
+    static final String TRACE_GENERATE = "VicVoix.generate";
+    private static final long TIMEOUT_MS = 10_000;
+
+    private Flows() {}
+
+    /** Saisie d'un texte puis « Générer », jusqu'à la fin de la synthèse (ou son échec, sans clé d'API). */
+    static void typeAndGenerate(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        UiObject2 text = device.wait(Until.findObject(By.res(PACKAGE, "etText")), TIMEOUT_MS);
+        text.setText("Bonjour. Ceci est une phrase de test pour la mesure du démarrage.");
+        device.findObject(By.res(PACKAGE, "btnGenerate")).click();
+        device.wait(Until.hasObject(By.res(PACKAGE, "progressBar")), 2_000);
+        device.wait(Until.gone(By.res(PACKAGE, "progressBar")), TIMEOUT_MS);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.vicvoix.baselineprofile;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Temps de démarrage (première image et affichage complet, voix chargées) à froid et à chaud,
+ * et temps du premier « Générer » après un lancement, sans compilation puis avec le profil :
+ * l'écart entre les deux mesure ce que le profil rapporte.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void coldStartNoCompilation() {
+        startup(StartupMode.COLD, new CompilationMode.None());
+    }
+
+    @Test
+    public void coldStartBaselineProfile() {
+        startup(StartupMode.COLD, new CompilationMode.Partial(BaselineProfileMode.Require));
+    }
+
+    @Test
+    public void warmStartNoCompilation() {
+        startup(StartupMode.WARM, new CompilationMode.None());
+    }
+
+    @Test
+    public void warmStartBaselineProfile() {
+        startup(StartupMode.WARM, new CompilationMode.Partial(BaselineProfileMode.Require));
+    }
+
+    @Test
+    public void firstGenerateNoCompilation() {
+        firstGenerate(new CompilationMode.None());
+    }
+
+    @Test
+    public void firstGenerateBaselineProfile() {
+        firstGenerate(new CompilationMode.Partial(BaselineProfileMode.Require));
+    }
+
+    private void startup(StartupMode mode, CompilationMode compilation) {
+        rule.measureRepeated(Flows.PACKAGE, Collections.singletonList(new StartupTimingMetric()),
+                compilation, mode, ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+
+    // Le premier appui paie ce qui a été sorti du démarrage (client HTTP, index du cache) s'il n'est pas prêt
+    private void firstGenerate(CompilationMode compilation) {
+        rule.measureRepeated(Flows.PACKAGE,
+                Arrays.asList(new StartupTimingMetric(), new TraceSectionMetric(Flows.TRACE_GENERATE)),
+                compilation, StartupMode.COLD, ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    Flows.typeAndGenerate(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.vicvoix.benchmark;
+
+import com.example.vicvoix.AudioContentDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Décodage de audioContent, de 1 Ko à 5 Mo.
+ * gc.alloc.rate.norm doit rester constant quelle que soit la taille : c'est la garantie du décodage en flux.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AudioDecodeBenchmark {
+    @Param({"1024", "65536", "1048576", "5242880"})
+    public int audioBytes;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = Payloads.synthesizeResponse(audioBytes).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long streamingDecode() throws IOException {
+        return AudioContentDecoder.decode(new ByteArrayInputStream(body), NullOutputStream.INSTANCE);
+    }
+
+    static final class NullOutputStream extends OutputStream {
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.vicvoix.benchmark;
+
+import java.util.Base64;
+import java.util.Random;
+
+/** Réponses d'API synthétiques, de forme identique à celles de Google TTS. */
+final class Payloads {
+    private Payloads() {}
+
+    static String synthesizeResponse(int audioBytes) {
+        byte[] audio = new byte[audioBytes];
+        new Random(42).nextBytes(audio);
+        return "{\n  \"audioContent\": \"" + Base64.getEncoder().encodeToString(audio) + "\"\n}\n";
+    }
+
+    static String voicesResponse(int count) {
+        String[] langs = {"fr-FR", "fr-CA", "en-US", "en-GB", "de-DE", "es-ES", "it-IT", "ja-JP"};
+        String[] kinds = {"Standard", "Wavenet", "Neural2", "Polyglot", "Studio"};
+        StringBuilder sb = new StringBuilder("{\"voices\":[");
+        for (int i = 0; i < count; i++) {
+            String lang = langs[i % langs.length];
+            if (i > 0) sb.append(',');
+            sb.append("{\"languageCodes\":[\"").append(lang).append("\"],")
+              .append("\"name\":\"").append(lang).append('-').append(kinds[i % kinds.length])
+              .append('-').append((char) ('A' + i % 26)).append("\",")
+              .append("\"ssmlGender\":\"").append(i % 2 == 0 ? "FEMALE" : "MALE").append("\",")
+              .append("\"naturalSampleRateHertz\":24000}");
+        }
+        return sb.append("]}").toString();
+    }
+}
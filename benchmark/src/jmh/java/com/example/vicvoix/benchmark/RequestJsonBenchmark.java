@@ -0,0 +1,43 @@
+package com.example.vicvoix.benchmark;
+
+import com.example.vicvoix.SynthesisRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/** Construction du corps JSON + clé de cache, comme pour chaque segment de generateTTS. */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RequestJsonBenchmark {
+    @Param({"80", "1500"})
+    public int textLength;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder(textLength);
+        String sentence = "Le train à destination de Lyon partira voie 4. ";
+        while (sb.length() < textLength) sb.append(sentence);
+        text = sb.substring(0, textLength);
+    }
+
+    @Benchmark
+    public String buildJson() {
+        return new SynthesisRequest(text, "fr-FR-Wavenet-D").toJson();
+    }
+
+    @Benchmark
+    public String buildJsonAndCacheKey() {
+        return new SynthesisRequest(text, "fr-FR-Wavenet-D").cacheKey();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.vicvoix.benchmark;
+
+import com.example.vicvoix.HttpClients;
+import com.example.vicvoix.SynthesisRequest;
+import com.example.vicvoix.TtsEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Synthèse de bout en bout via TtsEngine contre un MockWebServer local :
+ * requête HTTP, décodage en flux, écriture et publication dans le cache.
+ * Le texte change à chaque appel pour ne jamais toucher le cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SynthesizeLatencyBenchmark {
+    @Param({"16384", "262144"})
+    public int audioBytes;
+
+    private MockWebServer server;
+    private TtsEngine engine;
+    private File workDir;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final String body = Payloads.synthesizeResponse(audioBytes);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+            }
+        });
+        server.start();
+        workDir = Files.createTempDirectory("vicvoix-bench").toFile();
+        engine = new TtsEngine(HttpClients.shared(), server.url("/v1/").toString(), "bench", workDir, workDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        engine.shutdown();
+        server.shutdown();
+        deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public File synthesize() throws Exception {
+        return engine.synthesizeToFile(new SynthesisRequest("Annonce numéro " + (counter++), "fr-FR-Wavenet-D")).get();
+    }
+
+    private static void deleteRecursively(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) deleteRecursively(c);
+        }
+        f.delete();
+    }
+}
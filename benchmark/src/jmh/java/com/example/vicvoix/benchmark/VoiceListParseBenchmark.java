@@ -0,0 +1,45 @@
+package com.example.vicvoix.benchmark;
+
+import com.example.vicvoix.VoiceCatalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Parsing de /v1/voices et filtrage par langue sur l'index local. */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VoiceListParseBenchmark {
+    @Param({"500", "1500"})
+    public int voiceCount;
+
+    private String body;
+    private VoiceCatalog catalog;
+
+    @Setup
+    public void setUp() throws IOException {
+        body = Payloads.voicesResponse(voiceCount);
+        catalog = VoiceCatalog.read(new StringReader(body), 0L, null);
+    }
+
+    @Benchmark
+    public VoiceCatalog parse() throws IOException {
+        return VoiceCatalog.read(new StringReader(body), 0L, null);
+    }
+
+    @Benchmark
+    public List<VoiceCatalog.Voice> filterByLanguage() {
+        return catalog.voicesFor("fr-FR");
+    }
+}